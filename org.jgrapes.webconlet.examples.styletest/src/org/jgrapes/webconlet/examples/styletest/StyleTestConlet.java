@@ -59,6 +59,7 @@ public class StyleTestConlet extends FreeMarkerConlet<Serializable> {
      */
     public StyleTestConlet(Channel componentChannel) {
         super(componentChannel);
+        setCacheResourceTemplates(true);
     }
 
     /**
@@ -125,7 +125,7 @@ public class JmxBrowserConlet extends FreeMarkerConlet<Serializable> {
             Template tpl = freemarkerConfig()
                 .getTemplate("JmxBrowser-preview.ftl.html");
             channel.respond(new RenderConlet(type(), conletId,
-                processTemplate(event, tpl,
+                templateContent(tpl,
                     fmModel(event, channel, conletId, conletState)))
                         .setRenderAs(
                             RenderMode.Preview.addModifiers(event.renderAs()))
@@ -139,7 +139,7 @@ public class JmxBrowserConlet extends FreeMarkerConlet<Serializable> {
             Template tpl
                 = freemarkerConfig().getTemplate("JmxBrowser-view.ftl.html");
             channel.respond(new RenderConlet(type(), conletId,
-                processTemplate(event, tpl,
+                templateContent(tpl,
                     fmModel(event, channel, conletId, conletState)))
                         .setRenderAs(
                             RenderMode.View.addModifiers(event.renderAs()))
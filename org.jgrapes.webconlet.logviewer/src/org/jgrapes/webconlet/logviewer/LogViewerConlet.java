@@ -26,11 +26,14 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.LogRecord;
 import org.jgrapes.core.Channel;
 import org.jgrapes.core.Event;
@@ -41,6 +44,7 @@ import org.jgrapes.webconsole.base.ConsoleConnection;
 import org.jgrapes.webconsole.base.WebConsoleUtils;
 import org.jgrapes.webconsole.base.events.AddConletType;
 import org.jgrapes.webconsole.base.events.AddPageResources.ScriptResource;
+import org.jgrapes.webconsole.base.events.ConletVisibilityChanged;
 import org.jgrapes.webconsole.base.events.ConsoleReady;
 import org.jgrapes.webconsole.base.events.NotifyConletModel;
 import org.jgrapes.webconsole.base.events.NotifyConletView;
@@ -71,6 +75,9 @@ public class LogViewerConlet extends FreeMarkerConlet<Serializable> {
     private static final Set<RenderMode> MODES
         = RenderMode.asSet(RenderMode.View);
 
+    private final Map<ConsoleConnection, Set<String>> missedEntries
+        = Collections.synchronizedMap(new WeakHashMap<>());
+
     /**
      * Creates a new component with its channel set to the given channel.
      * 
@@ -80,6 +87,7 @@ public class LogViewerConlet extends FreeMarkerConlet<Serializable> {
      */
     public LogViewerConlet(Channel componentChannel) {
         super(componentChannel);
+        setCacheResourceTemplates(true);
     }
 
     /**
@@ -131,19 +139,28 @@ public class LogViewerConlet extends FreeMarkerConlet<Serializable> {
     }
 
     private void sendAllEntries(ConsoleConnection channel, String conletId) {
+        Optional.ofNullable(missedEntries.get(channel))
+            .ifPresent(missed -> missed.remove(conletId));
         channel.respond(new NotifyConletView(type(),
             conletId, "entries",
             (Object) LogViewerHandler.setConlet(this).stream()
                 .map(this::logEntryAsMap).toArray()));
     }
 
-    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
     /* default */ void addEntry(LogRecord entry) {
+        // Serialized once for all views
+        NotifyConletView notification = new NotifyConletView(type(),
+            null, "addEntry", logEntryAsMap(entry));
         for (ConsoleConnection connection : trackedConnections()) {
+            Set<String> visible = visibleConletIds(connection);
             for (String conletId : conletIds(connection)) {
-                connection.respond(new NotifyConletView(type(),
-                    conletId, "addEntry", logEntryAsMap(entry))
+                if (visible.contains(conletId)) {
+                    connection.respond(notification.forConlet(conletId)
                         .disableTracking());
+                    continue;
+                }
+                missedEntries.computeIfAbsent(connection,
+                    key -> ConcurrentHashMap.newKeySet()).add(conletId);
             }
         }
     }
@@ -191,6 +208,19 @@ public class LogViewerConlet extends FreeMarkerConlet<Serializable> {
         }
     }
 
+    /**
+     * Sends all entries if entries have been added while the conlet
+     * was hidden, thus replacing the entries that have been missed.
+     */
+    @Override
+    protected void doConletResumed(ConletVisibilityChanged event,
+            ConsoleConnection connection, String conletId) throws Exception {
+        Set<String> missed = missedEntries.get(connection);
+        if (missed != null && missed.contains(conletId)) {
+            sendAllEntries(connection, conletId);
+        }
+    }
+
     @Override
     protected boolean doSetLocale(SetLocale event, ConsoleConnection channel,
             String conletId) throws Exception {
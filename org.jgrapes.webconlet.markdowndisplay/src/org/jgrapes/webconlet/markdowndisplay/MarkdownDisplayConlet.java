@@ -96,6 +96,7 @@ public class MarkdownDisplayConlet extends
      */
     public MarkdownDisplayConlet(Channel componentChannel) {
         super(componentChannel);
+        setRenderCacheSize(256 * 1024);
     }
 
     private String storagePath(Session session) {
@@ -247,10 +248,12 @@ public class MarkdownDisplayConlet extends
         if (event.renderAs().contains(RenderMode.Preview)) {
             Template tpl = freemarkerConfig()
                 .getTemplate("MarkdownDisplay-preview.ftl.html");
+            // Content is rendered in the browser, output depends on title
             consoleConnection.respond(new RenderConlet(type(),
                 model.getConletId(),
-                processTemplate(event, tpl,
-                    fmModel(event, consoleConnection, conletId, model)))
+                processTemplate(event, consoleConnection, tpl,
+                    fmModel(event, consoleConnection, conletId, model),
+                    model.getTitle()))
                         .setRenderAs(
                             RenderMode.Preview.addModifiers(event.renderAs()))
                         .setSupportedModes(supported));
@@ -262,8 +265,9 @@ public class MarkdownDisplayConlet extends
                 .getTemplate("MarkdownDisplay-view.ftl.html");
             consoleConnection
                 .respond(new RenderConlet(type(), model.getConletId(),
-                    processTemplate(event, tpl,
-                        fmModel(event, consoleConnection, conletId, model)))
+                    processTemplate(event, consoleConnection, tpl,
+                        fmModel(event, consoleConnection, conletId, model),
+                        model.getTitle()))
                             .setRenderAs(
                                 RenderMode.View.addModifiers(event.renderAs()))
                             .setSupportedModes(supported));
@@ -71,6 +71,8 @@ public class SysInfoConlet
     public SysInfoConlet(Channel componentChannel) {
         super(componentChannel);
         setPeriodicRefresh(Duration.ofSeconds(1), () -> new Update());
+        setRenderCacheSize(64 * 1024);
+        setCacheResourceTemplates(true);
     }
 
     /**
@@ -115,9 +117,10 @@ public class SysInfoConlet
         if (event.renderAs().contains(RenderMode.Preview)) {
             Template tpl
                 = freemarkerConfig().getTemplate("SysInfo-preview.ftl.html");
+            // Output depends on the locale only
             connection.respond(new RenderConlet(type(), conletId,
-                processTemplate(event, tpl,
-                    fmModel(event, connection, conletId, conletState)))
+                processTemplate(event, connection, tpl,
+                    fmModel(event, connection, conletId, conletState), "")))
                         .setRenderAs(
                             RenderMode.Preview.addModifiers(event.renderAs()))
                         .setSupportedModes(MODES));
@@ -126,9 +129,10 @@ public class SysInfoConlet
         if (event.renderAs().contains(RenderMode.View)) {
             Template tpl
                 = freemarkerConfig().getTemplate("SysInfo-view.ftl.html");
+            // Output depends on the locale only
             connection.respond(new RenderConlet(type(), conletId,
-                processTemplate(event, tpl,
-                    fmModel(event, connection, conletId, conletState)))
+                processTemplate(event, connection, tpl,
+                    fmModel(event, connection, conletId, conletState), "")))
                         .setRenderAs(
                             RenderMode.View.addModifiers(event.renderAs()))
                         .setSupportedModes(MODES));
@@ -149,19 +153,20 @@ public class SysInfoConlet
             conletId, "updateMemorySizes",
             System.currentTimeMillis(), runtime.maxMemory(),
             runtime.totalMemory(),
-            runtime.totalMemory() - runtime.freeMemory()));
+            runtime.totalMemory() - runtime.freeMemory())
+                .setCoalescingKey(""));
     }
 
     /**
      * Handle the periodic update event by sending {@link NotifyConletView}
-     * events.
+     * events to the visible conlets.
      *
      * @param event the event
      * @param connection the console connection
      */
     @Handler
     public void onUpdate(Update event, ConsoleConnection connection) {
-        for (String conletId : conletIds(connection)) {
+        for (String conletId : visibleConletIds(connection)) {
             updateView(connection, conletId);
         }
     }
@@ -65,6 +65,7 @@ import org.jgrapes.webconsole.base.events.AddConletRequest;
 import org.jgrapes.webconsole.base.events.AddConletType;
 import org.jgrapes.webconsole.base.events.ConletDeleted;
 import org.jgrapes.webconsole.base.events.ConletResourceRequest;
+import org.jgrapes.webconsole.base.events.ConletVisibilityChanged;
 import org.jgrapes.webconsole.base.events.ConsoleReady;
 import org.jgrapes.webconsole.base.events.DeleteConlet;
 import org.jgrapes.webconsole.base.events.NotifyConletModel;
@@ -190,6 +191,16 @@ import org.jgrapes.webconsole.base.events.UpdateConletType;
  * {@link #conletInfosByConsoleConnection conletInfosByConsoleConnection}.
  * It can e.g. be used to send events to the web console(s) in response 
  * to an event on the server side.
+ * 
+ * The browser reports when a conlet becomes hidden (e.g. because
+ * it is in an inactive tab or the browser tab is in the background)
+ * or visible again ({@link ConletVisibilityChanged}). The visibility
+ * is tracked as well and unsolicited updates should only be sent for
+ * the conlets returned by {@link #visibleConletIds(ConsoleConnection)}.
+ * The periodic refresh (see {@link #setPeriodicRefresh}) is only
+ * fired on connections with visible conlets. When a conlet becomes
+ * visible again, {@link #doConletResumed} is invoked, which allows 
+ * the conlet to catch up with the updates that have been skipped.
  *
  * @param <S> the type of the conlet's state information
  * 
@@ -393,8 +404,9 @@ public abstract class AbstractConlet<S> extends Component {
 
     /**
      * If set to a value different from `null` causes an event
-     * from the given supplier to be fired on all tracked web console
-     * connections periodically.
+     * from the given supplier to be fired periodically on all tracked
+     * web console connections that have visible conlets (see
+     * {@link #visibleConnections()}).
      *
      * @param interval the refresh interval
      * @param supplier the supplier
@@ -428,7 +440,10 @@ public abstract class AbstractConlet<S> extends Component {
         }
         refreshTimer = Components.schedule(tmr -> {
             tmr.reschedule(tmr.scheduledFor().plus(refreshInterval));
-            fire(refreshEventSupplier.get(), trackedConnections());
+            ConsoleConnection[] connections = visibleConnections();
+            if (connections.length > 0) {
+                fire(refreshEventSupplier.get(), connections);
+            }
         }, Instant.now().plus(refreshInterval));
     }
 
@@ -714,6 +729,33 @@ public abstract class AbstractConlet<S> extends Component {
             connection, Collections.emptyMap()).keySet());
     }
 
+    /**
+     * Returns the tracked connections with at least one visible
+     * web console component.
+     *
+     * @return the web console connections
+     */
+    protected ConsoleConnection[] visibleConnections() {
+        return conletInfosByConsoleConnection.entrySet().stream()
+            .filter(e -> e.getValue().values().stream()
+                .anyMatch(ConletTrackingInfo::isVisible))
+            .map(Entry::getKey).toArray(ConsoleConnection[]::new);
+    }
+
+    /**
+     * Returns the set of ids of the web console components associated
+     * with the console connection that are visible in the browser.
+     * 
+     * @param connection the console connection
+     * @return the set
+     */
+    protected Set<String> visibleConletIds(ConsoleConnection connection) {
+        return conletInfosByConsoleConnection.getOrDefault(
+            connection, Collections.emptyMap()).values().stream()
+            .filter(ConletTrackingInfo::isVisible)
+            .map(ConletTrackingInfo::conletId).collect(Collectors.toSet());
+    }
+
     /**
      * Returns a map of all conlet ids and the modes in which 
      * views are currently rendered. 
@@ -1113,6 +1155,53 @@ public abstract class AbstractConlet<S> extends Component {
         // Default is to do nothing.
     }
 
+    /**
+     * Updates the tracked visibility of the conlet. If the conlet
+     * was hidden and has become visible, calls {@link #doConletResumed}.
+     *
+     * @param event the event
+     * @param connection the connection
+     * @throws Exception the exception
+     */
+    @Handler
+    @SuppressWarnings("PMD.SignatureDeclareThrowsException")
+    public final void onConletVisibilityChanged(ConletVisibilityChanged event,
+            ConsoleConnection connection) throws Exception {
+        if (!type().equals(typeFromId(event.conletId()))) {
+            return;
+        }
+        ConletTrackingInfo info = conletInfosByConsoleConnection
+            .getOrDefault(connection, Collections.emptyMap())
+            .get(event.conletId());
+        if (info == null || info.isVisible() == event.isVisible()) {
+            return;
+        }
+        info.setVisible(event.isVisible());
+        if (event.isVisible()) {
+            doConletResumed(event, connection, event.conletId());
+        }
+    }
+
+    /**
+     * Called by {@link #onConletVisibilityChanged} when a hidden
+     * conlet has become visible again. The default implementation
+     * fires the event used for the periodic refresh (if configured)
+     * on the connection, thus providing a catch-up update.
+     * 
+     * @param event the event
+     * @param connection the connection
+     * @param conletId the conlet id
+     * @throws Exception the exception
+     */
+    @SuppressWarnings("PMD.SignatureDeclareThrowsException")
+    protected void doConletResumed(ConletVisibilityChanged event,
+            ConsoleConnection connection, String conletId) throws Exception {
+        Supplier<Event<?>> supplier = refreshEventSupplier;
+        if (refreshInterval != null && supplier != null) {
+            fire(supplier.get(), connection);
+        }
+    }
+
     /**
      * Removes the {@link ConsoleConnection} from the set of tracked 
      * connections. If derived web console components need to perform 
@@ -1174,14 +1263,16 @@ public abstract class AbstractConlet<S> extends Component {
 
     /**
      * The information tracked about web console components that are
-     * used by the console. It includes the component's id and the
+     * used by the console. It includes the component's id, the
      * currently rendered views (only preview and view are tracked,
-     * with "deletable preview" mapped to "preview").
+     * with "deletable preview" mapped to "preview") and whether
+     * the component is visible in the browser.
      */
     @SuppressWarnings("PMD.PublicMemberInNonPublicType")
     protected static class ConletTrackingInfo {
         private final String conletId;
         private final Set<RenderMode> renderedAs;
+        private volatile boolean visible = true;
 
         /**
          * Instantiates a new conlet tracking info.
@@ -1211,6 +1302,28 @@ public abstract class AbstractConlet<S> extends Component {
             return renderedAs;
         }
 
+        /**
+         * Returns whether the conlet is visible in the browser.
+         * Conlets are considered visible until the browser
+         * reports otherwise.
+         *
+         * @return the result
+         */
+        public boolean isVisible() {
+            return visible;
+        }
+
+        /**
+         * Sets whether the conlet is visible in the browser.
+         *
+         * @param visible the visible
+         * @return the conlet tracking info
+         */
+        public ConletTrackingInfo setVisible(boolean visible) {
+            this.visible = visible;
+            return this;
+        }
+
         /**
          * Adds the given modes.
          *
@@ -0,0 +1,69 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
+import org.osgi.framework.FrameworkUtil;
+
+/**
+ * Removes the resources of bundles that are updated or uninstalled
+ * from the {@link ResourceCache}. Some OSGi frameworks (e.g. Felix,
+ * `bundle://42.1:1/...`) include the bundle revision in the URLs of
+ * a bundle's resources, others (e.g. Equinox, 
+ * `bundleresource://42.fwk1234:1/...`) don't. In the latter case,
+ * the cached content of an updated bundle's resources would be
+ * sent forever.
+ *
+ * The OSGi framework API is an optional dependency. This class 
+ * must therefore only be loaded if the API is available.
+ */
+/* default */ final class BundleInvalidation implements BundleListener {
+
+    private BundleInvalidation() {
+    }
+
+    /**
+     * Registers a listener with the framework if the web console
+     * bundle has been started in an OSGi framework.
+     */
+    /* default */ static void register() {
+        Bundle bundle = FrameworkUtil.getBundle(ResourceCache.class);
+        BundleContext context = bundle == null ? null
+            : bundle.getBundleContext();
+        if (context != null) {
+            context.addBundleListener(new BundleInvalidation());
+        }
+    }
+
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        if (event.getType() != BundleEvent.UPDATED
+            && event.getType() != BundleEvent.UNRESOLVED
+            && event.getType() != BundleEvent.UNINSTALLED) {
+            return;
+        }
+        // Both known URL formats start the host with the bundle id
+        String host = event.getBundle().getBundleId() + ".";
+        ResourceCache.invalidate(url -> url.getHost() != null
+            && url.getHost().startsWith(host));
+    }
+}
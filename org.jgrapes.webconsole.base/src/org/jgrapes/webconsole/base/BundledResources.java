@@ -0,0 +1,265 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.jgrapes.webconsole.base.events.AddConletType;
+import org.jgrapes.webconsole.base.events.AddPageResources;
+import org.jgrapes.webconsole.base.events.AddPageResources.ScriptResource;
+import org.jgrapes.webconsole.base.events.ConsoleCommand;
+
+/**
+ * Combines the scripts and style sheets requested by the
+ * {@link AddPageResources} and {@link AddConletType} commands
+ * of a console manifest into one script and one style sheet.
+ *
+ * Only resources that can be obtained from the {@link ResourceCache}
+ * are bundled, i.e. resources that have been requested (and sent
+ * from the class path) at least once before. Only classic scripts
+ * are bundled, modules are loaded individually. A script is only
+ * bundled if all features that it requires are provided by scripts
+ * that precede it in the bundle or are not provided by any script
+ * in the manifest (i.e. are pre-loaded by the console page). Style
+ * sheets with `@import` rules are not bundled.
+ *
+ * Relative URLs in the bundled style sheets are made absolute.
+ * Source map references are removed. The bundled script starts with
+ * an empty statement. A "use strict" directive at the beginning of
+ * the first script therefore doesn't apply to the complete bundle
+ * (and doesn't apply to the first script either).
+ */
+@SuppressWarnings("PMD.DataflowAnomalyAnalysis")
+/* default */ final class BundledResources {
+
+    private static final Pattern CSS_URL = Pattern.compile(
+        "url\\(\\s*(['\"]?)([^'\")\\s]+)\\1\\s*\\)");
+    private static final Pattern SCHEME
+        = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*:");
+    private static final Pattern SOURCE_MAP = Pattern.compile(
+        "^(//[#@] sourceMappingURL=.*|/\\*# sourceMappingURL=.*\\*/)$",
+        Pattern.MULTILINE);
+    private static final Pattern CHARSET
+        = Pattern.compile("^@charset\\s+[^;]*;", Pattern.MULTILINE);
+
+    private final Map<String, URL> scripts = new LinkedHashMap<>();
+    private final Set<String> provides = new HashSet<>();
+    private final Set<String> requires = new HashSet<>();
+    private final Map<String, URL> styleSheets = new LinkedHashMap<>();
+
+    private BundledResources() {
+    }
+
+    /**
+     * Determines the resources to bundle.
+     *
+     * @param commands the commands
+     * @return the bundled resources
+     */
+    /* default */ static BundledResources plan(
+            List<ConsoleCommand> commands) {
+        BundledResources result = new BundledResources();
+        List<ScriptResource> allScripts = new ArrayList<>();
+        List<URI> allCss = new ArrayList<>();
+        for (ConsoleCommand command : commands) {
+            if (command instanceof AddPageResources apr) {
+                allScripts.addAll(Arrays.asList(apr.scriptResources()));
+                allCss.addAll(Arrays.asList(apr.cssUris()));
+            } else if (command instanceof AddConletType act) {
+                allScripts.addAll(Arrays.asList(act.scriptResources()));
+                allCss.addAll(Arrays.asList(act.cssUris()));
+            }
+        }
+        result.selectScripts(allScripts);
+        for (URI uri : allCss) {
+            resolve(uri).filter(url -> !hasImports(url))
+                .ifPresent(url -> result.styleSheets.put(uri.getPath(), url));
+        }
+        return result;
+    }
+
+    private void selectScripts(List<ScriptResource> allScripts) {
+        for (List<ScriptResource> group : ScriptLoadPlan.groups(allScripts,
+            script -> script.scriptUri() != null
+                && script.scriptSource() == null
+                && script.getScriptId() == null
+                && (script.getScriptType() == null
+                    || "text/javascript".equals(script.getScriptType()))
+                && resolve(script.scriptUri()).isPresent())) {
+            for (ScriptResource script : group) {
+                scripts.putIfAbsent(script.scriptUri().getPath(),
+                    resolve(script.scriptUri()).get());
+                provides.addAll(Arrays.asList(script.provides()));
+                requires.addAll(Arrays.asList(script.requires()));
+            }
+        }
+        requires.removeAll(provides);
+    }
+
+    private static Optional<URL> resolve(URI uri) {
+        if (uri.getScheme() != null || uri.getRawAuthority() != null
+            || uri.getPath() == null) {
+            return Optional.empty();
+        }
+        return ResourceCache.resolved(uri.getPath());
+    }
+
+    private static boolean hasImports(URL resource) {
+        return text(resource).map(css -> css.contains("@import"))
+            .orElse(true);
+    }
+
+    private static Optional<String> text(URL resource) {
+        try {
+            return Optional.of(new String(
+                ResourceCache.entry(resource).content(),
+                StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns a string that identifies the bundled resources
+     * and their content.
+     *
+     * @return the string
+     */
+    /* default */ String signature() {
+        return Stream.concat(scripts.entrySet().stream(),
+            styleSheets.entrySet().stream())
+            .map(e -> e.getKey() + "=" + ResourceHashes.hash(e.getValue()))
+            .collect(Collectors.joining(","));
+    }
+
+    /**
+     * Checks if there is nothing to bundle. Bundling is considered
+     * pointless if there are less than two resources of a kind.
+     *
+     * @return true, if is empty
+     */
+    /* default */ boolean isEmpty() {
+        return scripts.size() < 2 && styleSheets.size() < 2;
+    }
+
+    /**
+     * Creates the bundles and replaces the bundled resources in
+     * the commands with a command that requests the bundles.
+     * Returns the created bundles by name.
+     *
+     * @param commands the commands, will be modified
+     * @param uriSupplier supplies the URI for a bundle name
+     * @return the bundles
+     */
+    /* default */ Map<String, ResourceCache.Entry> apply(
+            List<ConsoleCommand> commands, Function<String, URI> uriSupplier) {
+        Map<String, ResourceCache.Entry> bundles = new HashMap<>();
+        AddPageResources bundleCommand = new AddPageResources();
+        Set<String> bundled = new HashSet<>();
+        if (scripts.size() >= 2) {
+            StringBuilder content = new StringBuilder(";\n");
+            for (var script : scripts.entrySet()) {
+                String source = text(script.getValue()).orElse("");
+                content.append("/* ").append(script.getKey()).append(" */\n")
+                    .append(SOURCE_MAP.matcher(source).replaceAll(""))
+                    .append("\n;\n");
+            }
+            String name = add(bundles, content, ".js");
+            bundleCommand.addScriptResource(new ScriptResource()
+                .setScriptUri(uriSupplier.apply(name))
+                .setProvides(provides.toArray(new String[0]))
+                .setRequires(requires.toArray(new String[0])));
+            bundled.addAll(scripts.keySet());
+        }
+        if (styleSheets.size() >= 2) {
+            StringBuilder content = new StringBuilder();
+            for (var sheet : styleSheets.entrySet()) {
+                String source = text(sheet.getValue()).orElse("");
+                source = CHARSET.matcher(source).replaceAll("");
+                source = SOURCE_MAP.matcher(source).replaceAll("");
+                content.append("/* ").append(sheet.getKey()).append(" */\n")
+                    .append(absoluteUrls(URI.create(sheet.getKey()), source))
+                    .append('\n');
+            }
+            String name = add(bundles, content, ".css");
+            bundleCommand.addCss(uriSupplier.apply(name));
+            bundled.addAll(styleSheets.keySet());
+        }
+        for (ConsoleCommand command : commands) {
+            if (command instanceof AddPageResources apr) {
+                apr.removeResources(uri -> isBundled(bundled, uri));
+            } else if (command instanceof AddConletType act) {
+                act.removeResources(uri -> isBundled(bundled, uri));
+            }
+        }
+        commands.add(0, bundleCommand);
+        return bundles;
+    }
+
+    private static boolean isBundled(Set<String> bundled, URI uri) {
+        return uri.getScheme() == null && uri.getRawAuthority() == null
+            && bundled.contains(uri.getPath());
+    }
+
+    private static String add(Map<String, ResourceCache.Entry> bundles,
+            CharSequence content, String extension) {
+        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        String hash = ResourceCache.hash(bytes);
+        bundles.put(hash + extension,
+            new ResourceCache.Entry(null, 0, bytes, hash));
+        return hash + extension;
+    }
+
+    private static String absoluteUrls(URI base, String css) {
+        Matcher matcher = CSS_URL.matcher(css);
+        StringBuilder result = new StringBuilder(css.length());
+        while (matcher.find()) {
+            String target = matcher.group(2);
+            if (target.startsWith("/") || target.startsWith("#")
+                || SCHEME.matcher(target).find()) {
+                continue;
+            }
+            try {
+                matcher.appendReplacement(result, Matcher.quoteReplacement(
+                    "url(" + matcher.group(1) + base.resolve(target)
+                        + matcher.group(1) + ")"));
+            } catch (IllegalArgumentException e) { // NOPMD
+                // Leave as is
+            }
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import org.jgrapes.core.Components;
+import org.jgrapes.core.Components.Timer;
+import org.jgrapes.io.IOSubchannel;
+import org.jgrapes.io.util.CharBufferWriter;
+import org.jgrapes.webconsole.base.ConsoleWeblet.FlushCommands;
+import org.jgrapes.webconsole.base.events.ConsoleCommand;
+import org.jgrapes.webconsole.base.events.SimpleConsoleCommand;
+
+/**
+ * Collects the JSON representations of the {@link ConsoleCommand}s
+ * sent to a {@link ConsoleConnection} and sends them as a single
+ * [JSON RPC batch](https://www.jsonrpc.org/specification#batch).
+ *
+ * Except for {@link #hold(Duration)}, {@link #release()},
+ * {@link #awaitResume()} and {@link #close()}, the methods may only
+ * be invoked by handlers that are executed by the connection's
+ * response pipeline.
+ */
+/* default */ final class CommandBatch {
+
+    private final ConsoleConnection connection;
+    private final StringBuilder buffer = new StringBuilder();
+    private final Writer writer = new BatchWriter();
+    private final ReplayBuffer replayBuffer = new ReplayBuffer();
+    private int count;
+    private boolean flushPending;
+    private volatile Timer flushTimer;
+    private volatile long heldUntil;
+    private volatile boolean resuming;
+
+    /**
+     * Instantiates a new command batch for the given connection.
+     *
+     * @param connection the connection
+     */
+    /* default */ CommandBatch(ConsoleConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Appends the JSON representation of the command to the batch.
+     * If the command cannot be serialized, the batch is left unchanged.
+     *
+     * @param command the command
+     * @throws InterruptedException the interrupted exception
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    /* default */ void add(ConsoleCommand command)
+            throws InterruptedException, IOException {
+        int mark = buffer.length();
+        if (count > 0) {
+            buffer.append(',');
+        }
+        long started = System.nanoTime();
+        try {
+            command.emitJson(writer);
+            connection.metrics()
+                .recordSerialization(System.nanoTime() - started);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            buffer.setLength(mark);
+            throw e;
+        }
+        count += 1;
+    }
+
+    /**
+     * Returns the number of characters collected.
+     *
+     * @return the size
+     */
+    /* default */ int size() {
+        return buffer.length();
+    }
+
+    /**
+     * Makes sure that a {@link FlushCommands} event will be processed
+     * by the connection's response pipeline after the given window.
+     * A zero window causes the event to be fired immediately, i.e.
+     * it will be processed after all commands that have already
+     * been queued.
+     *
+     * @param window the window
+     */
+    /* default */ void scheduleFlush(Duration window) {
+        if (flushPending) {
+            return;
+        }
+        flushPending = true;
+        if (window.isZero()) {
+            connection.responsePipeline().fire(new FlushCommands(),
+                connection);
+            return;
+        }
+        flushTimer = Components.schedule(tmr -> {
+            flushTimer = null;
+            connection.responsePipeline().fire(new FlushCommands(),
+                connection);
+        }, window);
+    }
+
+    /**
+     * Invoked when the {@link FlushCommands} event is handled. If the
+     * batch is held, a new flush is scheduled for the end of the hold
+     * period. Else the collected commands are sent.
+     *
+     * @param upstream the upstream channel
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    /* default */ void flushScheduled(IOSubchannel upstream)
+            throws IOException {
+        flushPending = false;
+        long heldFor = heldUntil - System.currentTimeMillis();
+        if (heldFor > 0) {
+            if (count > 0) {
+                scheduleFlush(Duration.ofMillis(heldFor));
+            }
+            return;
+        }
+        flush(upstream);
+    }
+
+    /**
+     * Suppresses the sending of collected commands (except for
+     * exceeding the size limit) until {@link #release()} is called,
+     * but no longer than the given duration.
+     *
+     * @param maxHold the maximum duration
+     */
+    /* default */ void hold(Duration maxHold) {
+        heldUntil = System.currentTimeMillis() + maxHold.toMillis();
+    }
+
+    /**
+     * Checks if the sending of collected commands is held back.
+     *
+     * @return true, if held
+     */
+    /* default */ boolean isHeld() {
+        return heldUntil > System.currentTimeMillis();
+    }
+
+    /**
+     * Ends holding back the collected commands and causes them 
+     * to be sent.
+     */
+    /* default */ void release() {
+        if (heldUntil == 0) {
+            return;
+        }
+        heldUntil = 0;
+        Timer timer = flushTimer;
+        if (timer != null) {
+            flushTimer = null;
+            timer.cancel();
+        }
+        connection.responsePipeline().fire(new FlushCommands(), connection);
+    }
+
+    /**
+     * Sends the collected commands. A single command is sent as
+     * is, several commands are sent as JSON array. The message
+     * is recorded for replay. While the connection is being 
+     * resumed, the commands are kept until {@link #resume} is 
+     * invoked.
+     *
+     * @param upstream the upstream channel
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    /* default */ void flush(IOSubchannel upstream) throws IOException {
+        if (count == 0 || resuming) {
+            return;
+        }
+        @SuppressWarnings({ "resource", "PMD.CloseResource" })
+        CharBufferWriter out = new CharBufferWriter(upstream,
+            upstream.responsePipeline()).suppressClose();
+        try {
+            if (count > 1) {
+                out.write('[');
+            }
+            out.append(buffer);
+            if (count > 1) {
+                out.write(']');
+            }
+            out.close();
+            connection.metrics().recordOutput(count,
+                buffer.length() + (count > 1 ? 2 : 0));
+            replayBuffer.add(count, buffer);
+        } finally {
+            clear();
+        }
+    }
+
+    /**
+     * Sets the maximum number of characters kept for replay.
+     *
+     * @param limit the limit
+     */
+    /* default */ void setReplayLimit(int limit) {
+        replayBuffer.setLimit(limit);
+    }
+
+    /**
+     * Suspends sending until {@link #resume} is invoked. Invoked
+     * when a new WebSocket connection has been established for 
+     * an existing console connection, before commands can be sent
+     * using the new WebSocket connection.
+     */
+    /* default */ void awaitResume() {
+        resuming = true;
+    }
+
+    /**
+     * Resumes sending after a new WebSocket connection has been
+     * established. The commands sent since the command with the
+     * given sequence number are replayed. If this isn't possible,
+     * a `resync` command with the number of commands sent is
+     * sent instead, which causes the browser to request a fresh
+     * rendering of all conlets. Finally, any commands collected
+     * are sent.
+     *
+     * @param from the sequence number of the first command not
+     * received by the browser, or a negative value if unknown
+     * @param upstream the upstream channel
+     * @throws InterruptedException the interrupted exception
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    /* default */ void resume(long from, IOSubchannel upstream)
+            throws InterruptedException, IOException {
+        resuming = false;
+        @SuppressWarnings({ "resource", "PMD.CloseResource" })
+        CharBufferWriter out = new CharBufferWriter(upstream,
+            upstream.responsePipeline()).suppressClose();
+        if (from >= 0 && replayBuffer.canReplay(from)) {
+            if (from == replayBuffer.sent()) {
+                flush(upstream);
+                return;
+            }
+            replayBuffer.replay(from, out);
+        } else {
+            new SimpleConsoleCommand("resync", replayBuffer.sent())
+                .emitJson(out);
+        }
+        out.close();
+        flush(upstream);
+    }
+
+    /**
+     * Cancels a scheduled flush. Invoked when the connection
+     * is closed.
+     */
+    /* default */ void close() {
+        Timer timer = flushTimer;
+        if (timer != null) {
+            flushTimer = null;
+            timer.cancel();
+        }
+    }
+
+    /**
+     * Discards any collected commands.
+     */
+    /* default */ void clear() {
+        buffer.setLength(0);
+        count = 0;
+    }
+
+    /**
+     * A writer that appends to the buffer and ignores close.
+     */
+    private final class BatchWriter extends Writer {
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            buffer.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            buffer.append(str, off, off + len);
+        }
+
+        @Override
+        public void flush() {
+            // Nothing to do
+        }
+
+        @Override
+        public void close() {
+            // Must not be closed by the JSON serialization
+        }
+    }
+}
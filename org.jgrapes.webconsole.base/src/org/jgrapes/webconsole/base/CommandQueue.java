@@ -0,0 +1,383 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jgrapes.core.Event;
+import org.jgrapes.io.events.Close;
+import org.jgrapes.webconsole.base.ConsoleWeblet.QueueOverflowPolicy;
+import org.jgrapes.webconsole.base.events.ConsoleCommand;
+import org.jgrapes.webconsole.base.events.NotifyConletView;
+
+/**
+ * Keeps track of the {@link ConsoleCommand}s that have been fired
+ * on a {@link ConsoleConnection}'s response pipeline but have not
+ * been processed yet. If the number of pending commands reaches
+ * the configured limit, the {@link QueueOverflowPolicy} configured
+ * for the type of the new command is applied. Commands sent while
+ * an event for the connection is being handled (see
+ * {@link #handling(Event)}) are responses, e.g. to the
+ * {@link org.jgrapes.webconsole.base.events.ConsoleReady} event or
+ * to a request from the browser. They are never subject to the limit.
+ *
+ * Independent of the limit, a pending {@link NotifyConletView}
+ * with a coalescing key is dropped when a notification with the
+ * same key is sent (see 
+ * {@link NotifyConletView#setCoalescingKey(Object)}).
+ *
+ * Commands that are dropped while pending are not removed from
+ * the queue. Rather, they are marked as dropped and skipped when
+ * they are eventually processed. Dropping a command therefore
+ * doesn't depend on the queue depth.
+ */
+@SuppressWarnings("PMD.AvoidSynchronizedAtMethodLevel")
+/* default */ final class CommandQueue {
+
+    @SuppressWarnings("PMD.FieldNamingConventions")
+    private static final Logger logger
+        = Logger.getLogger(CommandQueue.class.getName());
+
+    @SuppressWarnings("PMD.FieldNamingConventions")
+    private static final ThreadLocal<Event<?>> handled = new ThreadLocal<>();
+
+    private final ConsoleConnection connection;
+    private int limit;
+    private Map<Class<?>, QueueOverflowPolicy> policies
+        = Collections.emptyMap();
+    private final Deque<ConsoleCommand> pending = new ArrayDeque<>();
+    private final Set<ConsoleCommand> dropped
+        = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int droppedPending;
+    @SuppressWarnings("PMD.UseConcurrentHashMap")
+    private final Map<Object, ConsoleCommand> coalescable = new HashMap<>();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private boolean disconnecting;
+
+    /**
+     * The result of admitting a command.
+     */
+    private enum Admission {
+        FIRE, DROP, DISCONNECT
+    }
+
+    /**
+     * Instantiates a new command queue for the given connection.
+     *
+     * @param connection the connection
+     */
+    /* default */ CommandQueue(ConsoleConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Sets the limit and the policies. The policies are looked
+     * up using the command's class and its super classes. Commands
+     * without a configured policy are handled according to
+     * {@link QueueOverflowPolicy#DISCONNECT}.
+     *
+     * @param limit the limit, zero or less for no limit
+     * @param policies the policies
+     */
+    /* default */ synchronized void configure(int limit,
+            Map<Class<?>, QueueOverflowPolicy> policies) {
+        this.limit = limit;
+        this.policies = policies;
+        notifyAll();
+    }
+
+    /**
+     * Returns the number of commands fired but not processed yet.
+     *
+     * @return the depth
+     */
+    /* default */ synchronized int depth() {
+        return pending.size() - droppedPending;
+    }
+
+    /**
+     * Returns the number of commands dropped since the connection
+     * was created.
+     *
+     * @return the count
+     */
+    /* default */ long droppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Returns the number of commands replaced by a newer command
+     * with the same coalescing key.
+     *
+     * @return the count
+     */
+    /* default */ long coalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Fires the command on the connection's response pipeline,
+     * unless the queue is full and the applicable policy causes the
+     * command to be dropped.
+     *
+     * @param command the command
+     */
+    /* default */ void fire(ConsoleCommand command) {
+        switch (admit(command)) {
+        case FIRE:
+            connection.responsePipeline().fire(command, connection);
+            break;
+        case DISCONNECT:
+            disconnect();
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Records the event handled by the current thread. Invoked with
+     * the event before any handler is invoked for an event fired on
+     * a {@link ConsoleConnection} and with `null` after all handlers
+     * have been invoked.
+     *
+     * @param event the event or `null`
+     */
+    /* default */ static void handling(Event<?> event) {
+        if (event == null) {
+            handled.remove();
+            return;
+        }
+        handled.set(event);
+    }
+
+    /**
+     * Checks if the current thread handles an event for the 
+     * connection. If the handling of the event has been stopped,
+     * the remaining handlers (including the one that invokes
+     * {@link #handling(Event)} with `null`) are skipped, so the 
+     * event is no longer considered.
+     *
+     * @return true, if the command is a response
+     */
+    private boolean isResponse() {
+        Event<?> event = handled.get();
+        return event != null && !event.isStopped()
+            && Arrays.asList(event.channels()).contains(connection);
+    }
+
+    @SuppressWarnings({ "PMD.CognitiveComplexity", "PMD.NPathComplexity" })
+    private synchronized Admission admit(ConsoleCommand command) {
+        coalesce(command);
+        if (limit <= 0 || depth() < limit || isResponse()) {
+            enqueue(command);
+            return Admission.FIRE;
+        }
+        switch (policy(command.getClass())) {
+        case DROP_OLDEST:
+            oldest(command.getClass()).ifPresentOrElse(this::drop,
+                () -> dropped.add(command));
+            break;
+        case LATEST_WINS:
+            previous(command).or(() -> oldest(command.getClass()))
+                .ifPresentOrElse(this::drop, () -> dropped.add(command));
+            break;
+        case DISCONNECT:
+            droppedCount.incrementAndGet();
+            if (disconnecting || !connection.isOpen()) {
+                return Admission.DROP;
+            }
+            discardPending();
+            return Admission.DISCONNECT;
+        default:
+            awaitSpace();
+            break;
+        }
+        if (dropped.remove(command)) {
+            droppedCount.incrementAndGet();
+            return Admission.DROP;
+        }
+        enqueue(command);
+        return Admission.FIRE;
+    }
+
+    private void enqueue(ConsoleCommand command) {
+        pending.add(command);
+        connection.metrics().recordQueueDepth(depth());
+        coalescingKey(command).ifPresent(key -> coalescable.put(key, command));
+    }
+
+    private static Optional<Object> coalescingKey(ConsoleCommand command) {
+        if (command instanceof NotifyConletView notify) {
+            return notify.coalescingKey();
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Drops the pending command with the same coalescing key
+     * as the given command, if any.
+     *
+     * @param command the command
+     */
+    private void coalesce(ConsoleCommand command) {
+        coalescingKey(command).map(coalescable::remove).ifPresent(previous -> {
+            if (dropped.add(previous)) {
+                droppedPending += 1;
+                coalescedCount.incrementAndGet();
+            }
+        });
+    }
+
+    private QueueOverflowPolicy policy(Class<?> type) {
+        for (Class<?> cls = type; cls != null; cls = cls.getSuperclass()) {
+            QueueOverflowPolicy policy = policies.get(cls);
+            if (policy != null) {
+                return policy;
+            }
+        }
+        return QueueOverflowPolicy.DISCONNECT;
+    }
+
+    private Optional<ConsoleCommand> oldest(Class<?> type) {
+        return pending.stream().filter(cmd -> cmd.getClass() == type
+            && !dropped.contains(cmd)).findFirst();
+    }
+
+    private Optional<ConsoleCommand> previous(ConsoleCommand command) {
+        Object key = key(command);
+        return pending.stream().filter(cmd -> cmd.getClass() == command
+            .getClass() && !dropped.contains(cmd)
+            && Objects.equals(key(cmd), key)).findFirst();
+    }
+
+    /**
+     * Returns the key used to identify a command that may be replaced
+     * with a newer command. For a {@link NotifyConletView} this is
+     * the combination of conlet id and method, for all other commands
+     * only the class is taken into account.
+     *
+     * @param command the command
+     * @return the key
+     */
+    private static Object key(ConsoleCommand command) {
+        if (command instanceof NotifyConletView notify) {
+            return Arrays.asList(notify.conletId(), notify.method());
+        }
+        return command.getClass();
+    }
+
+    /**
+     * Drops the given pending command. The command is skipped when
+     * it is eventually processed (see {@link #take(ConsoleCommand)}).
+     * A new command (which has not been added to the pending 
+     * commands yet) is dropped by putting it in the set of dropped
+     * commands directly. It is removed from this set again by
+     * {@link #admit(ConsoleCommand)}.
+     *
+     * @param command the command
+     */
+    private void drop(ConsoleCommand command) {
+        if (dropped.add(command)) {
+            droppedPending += 1;
+            droppedCount.incrementAndGet();
+            coalescingKey(command)
+                .ifPresent(key -> coalescable.remove(key, command));
+        }
+    }
+
+    private void awaitSpace() {
+        while (limit > 0 && depth() >= limit && connection.isOpen()) {
+            try {
+                TimeUnit.MILLISECONDS.timedWait(this, 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drops all pending commands. Invoked with the lock held
+     * before the connection is closed by {@link #disconnect()}.
+     */
+    private void discardPending() {
+        disconnecting = true;
+        droppedCount.addAndGet(depth());
+        dropped.addAll(pending);
+        pending.clear();
+        droppedPending = 0;
+        coalescable.clear();
+        notifyAll();
+    }
+
+    /**
+     * Closes the connection. Must not be invoked with the lock held,
+     * because closing the connection invokes other components.
+     */
+    private void disconnect() {
+        logger.log(Level.FINE, () -> "Outbound queue of " + connection
+            + " exceeds limit, closing connection.");
+        connection.close();
+        Optional.ofNullable(connection.upstreamChannel()).ifPresent(
+            upstream -> connection.responsePipeline().fire(new Close(),
+                upstream));
+    }
+
+    /**
+     * Invoked when the command is processed by the response pipeline.
+     * Returns `false` if the command has been dropped.
+     *
+     * @param command the command
+     * @return true, if the command is to be sent
+     */
+    /* default */ synchronized boolean take(ConsoleCommand command) {
+        boolean wasPending;
+        if (pending.peekFirst() == command) {
+            pending.removeFirst();
+            wasPending = true;
+        } else {
+            // Only if processed out of order
+            wasPending = pending.remove(command);
+        }
+        if (dropped.remove(command)) {
+            if (wasPending) {
+                droppedPending -= 1;
+            }
+            return false;
+        }
+        coalescingKey(command)
+            .ifPresent(key -> coalescable.remove(key, command));
+        notifyAll();
+        return true;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import org.jgrapes.core.Components;
+import org.jgrapes.core.Components.Timer;
+
+/**
+ * Tracks the expiry of the {@link ConsoleConnection}s of a
+ * {@link WebConsole} using a hashed timer wheel with a coarse
+ * resolution.
+ *
+ * Connections are not moved in the wheel when they are refreshed
+ * (see {@link ConsoleConnection#refresh()}). Rather, when the slot
+ * that a connection has been put in is processed, the connection's
+ * actual expiry time is checked. If it is still in the future, the
+ * connection is put in the slot for the new expiry time, else it
+ * is closed. Connections that have been closed in the meantime
+ * are simply dropped from the wheel. Connections may therefore
+ * expire up to one tick later than configured.
+ */
+@SuppressWarnings("PMD.AvoidSynchronizedAtMethodLevel")
+/* default */ final class ConnectionTimeouts {
+
+    private static final long TICK = 1000;
+    private static final int SLOTS = 64;
+
+    private final List<Set<ConsoleConnection>> wheel;
+    private long currentTick;
+    private Timer timer;
+    private int size;
+
+    /**
+     * Instantiates a new timer wheel.
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    /* default */ ConnectionTimeouts() {
+        wheel = new ArrayList<>(SLOTS);
+        for (int i = 0; i < SLOTS; i++) {
+            wheel.add(Collections.newSetFromMap(new IdentityHashMap<>()));
+        }
+        currentTick = System.currentTimeMillis() / TICK;
+    }
+
+    /**
+     * Adds the connection to the slot for its expiry time. Must be
+     * invoked again if the connection's timeout is reduced, because
+     * the connection would otherwise only be checked at the (later)
+     * time when it was added.
+     *
+     * @param connection the connection
+     */
+    /* default */ synchronized void add(ConsoleConnection connection) {
+        long tick = Math.max(connection.expiresAtMillis() / TICK + 1,
+            currentTick + 1);
+        if (wheel.get((int) (tick % SLOTS)).add(connection)) {
+            size += 1;
+        }
+        if (timer == null) {
+            currentTick = System.currentTimeMillis() / TICK;
+            timer = Components.schedule(tmr -> advance(),
+                Instant.ofEpochMilli((currentTick + 1) * TICK));
+        }
+    }
+
+    /**
+     * Processes the slots up to the current time.
+     */
+    private void advance() {
+        List<ConsoleConnection> expired = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            while (currentTick < now / TICK) {
+                currentTick += 1;
+                processSlot(now, expired);
+            }
+            if (size == 0) {
+                timer = null;
+            } else {
+                timer.reschedule(Duration.ofMillis(TICK - now % TICK));
+            }
+        }
+        // Closing fires events, don't do it while holding the lock.
+        for (var connection : expired) {
+            connection.close();
+        }
+    }
+
+    private void processSlot(long now, List<ConsoleConnection> expired) {
+        Set<ConsoleConnection> slot = wheel.get((int) (currentTick % SLOTS));
+        List<ConsoleConnection> due = new ArrayList<>(slot);
+        size -= slot.size();
+        slot.clear();
+        for (var connection : due) {
+            if (!connection.isOpen()) {
+                continue;
+            }
+            if (connection.expiresAtMillis() <= now) {
+                expired.add(connection);
+                continue;
+            }
+            long tick = Math.max(connection.expiresAtMillis() / TICK + 1,
+                currentTick + 1);
+            if (wheel.get((int) (tick % SLOTS)).add(connection)) {
+                size += 1;
+            }
+        }
+    }
+}
@@ -18,12 +18,9 @@
 
 package org.jgrapes.webconsole.base;
 
-import java.lang.ref.ReferenceQueue;
-import java.lang.ref.WeakReference;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
@@ -31,8 +28,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import org.jgrapes.core.Channel;
-import org.jgrapes.core.Components;
-import org.jgrapes.core.Components.Timer;
+import org.jgrapes.core.Event;
 import org.jgrapes.core.EventPipeline;
 import org.jgrapes.core.Subchannel;
 import org.jgrapes.http.Session;
@@ -40,6 +36,7 @@ import org.jgrapes.io.IOSubchannel;
 import org.jgrapes.io.IOSubchannel.DefaultIOSubchannel;
 import org.jgrapes.io.events.Closed;
 import org.jgrapes.io.util.LinkedIOSubchannel;
+import org.jgrapes.webconsole.base.events.ConsoleCommand;
 
 /**
  * The server side representation of a window in the browser 
@@ -54,6 +51,12 @@ import org.jgrapes.io.util.LinkedIOSubchannel;
  * of the WebSocket connection that handles the actual transfer 
  * of notifications.
  * 
+ * When the browser reconnects, it reports the number of commands
+ * received so far. If enabled (see 
+ * {@link ConsoleWeblet#setCommandReplayLimit(int)}), the commands
+ * missed are replayed from a buffer. Only if they are not available,
+ * the browser re-requests the rendering of all conlets.
+ * 
  * ![WebConsole Connection](ConsoleConnection.svg)
  * 
  * To allow reconnection and because there is no reliable way 
@@ -62,13 +65,16 @@ import org.jgrapes.io.util.LinkedIOSubchannel;
  * remain in an open state as long as they are in use. Only if no 
  * data is received (i.e. {@link #refresh()} isn't called) for the 
  * time span configured with
- * {@link ConsoleWeblet#setConnectionNetworkTimeout} a timer closes
- * the connection by calling the {@link #close()} method. (Method 
+ * {@link ConsoleWeblet#setConnectionNetworkTimeout} the 
+ * {@link WebConsole} closes the connection by calling the 
+ * {@link #close()} method. (Method 
  * {@link #isConnected()} can be used to check the connection state.)
  * In order to keep the console connection in an open state while
  * the connection is inactive, i.e. no data is sent due to user activity,
  * the SPA automatically generates refresh messages as configured
  * with {@link ConsoleWeblet#setConnectionRefreshInterval(Duration)}. 
+ * The refresh messages are sent as minimal WebSocket messages 
+ * (a single "`.`") that are handled without JSON parsing.
  * 
  * {@link ConsoleConnection} implements the {@link IOSubchannel}
  * interface. This allows the instances to be used as channels
@@ -132,51 +138,50 @@ import org.jgrapes.io.util.LinkedIOSubchannel;
  */
 public final class ConsoleConnection extends DefaultIOSubchannel {
 
-    private static Map<String, WeakReference<ConsoleConnection>> connections
+    private static Map<String, ConsoleConnection> connections
+        = new ConcurrentHashMap<>();
+    private static Map<WebConsole, Set<ConsoleConnection>> byConsole
+        = new ConcurrentHashMap<>();
+    private static Map<Session, Set<ConsoleConnection>> bySession
         = new ConcurrentHashMap<>();
-    private static ReferenceQueue<ConsoleConnection> unusedConnections
-        = new ReferenceQueue<>();
 
     private String connectionId;
     private final WebConsole console;
     private final Set<Locale> supportedLocales;
     private Locale locale;
-    private long timeout;
-    private final Timer timeoutTimer;
+    private volatile long timeout;
+    private volatile long refreshedAt;
     private boolean open = true;
     private boolean connected = true;
     private Supplier<Optional<Session>> sessionSupplier;
+    private Session indexedSession;
     private IOSubchannel upstreamChannel;
-
-    /**
-     * Weak reference to session.
-     */
-    @SuppressWarnings("PMD.PublicMemberInNonPublicType")
-    private static class ConnectionReference
-            extends WeakReference<ConsoleConnection> {
-
-        private final String id;
-
-        /**
-         * Instantiates a new session reference.
-         *
-         * @param referent the referent
-         */
-        public ConnectionReference(ConsoleConnection referent) {
-            super(referent, unusedConnections);
-            id = referent.consoleConnectionId();
-        }
+    private final CommandBatch commandBatch = new CommandBatch(this);
+    private final CommandQueue commandQueue = new CommandQueue(this);
+    private final DeferredCommands deferredCommands
+        = new DeferredCommands(this);
+    private final ConsoleManifest.Collector manifestCollector
+        = new ConsoleManifest.Collector();
+    private final TrafficMetrics metrics;
+
+    private static <K> void addToIndex(
+            Map<K, Set<ConsoleConnection>> index, K key,
+            ConsoleConnection connection) {
+        index.compute(key, (k, set) -> {
+            Set<ConsoleConnection> result
+                = set == null ? ConcurrentHashMap.newKeySet() : set;
+            result.add(connection);
+            return result;
+        });
     }
 
-    private static void cleanUnused() {
-        while (true) {
-            ConnectionReference unused
-                = (ConnectionReference) unusedConnections.poll();
-            if (unused == null) {
-                break;
-            }
-            connections.remove(unused.id);
-        }
+    private static <K> void removeFromIndex(
+            Map<K, Set<ConsoleConnection>> index, K key,
+            ConsoleConnection connection) {
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(connection);
+            return set.isEmpty() ? null : set;
+        });
     }
 
     /**
@@ -188,29 +193,34 @@ public final class ConsoleConnection extends DefaultIOSubchannel {
      */
     /* default */ static Optional<ConsoleConnection>
             lookup(String connectionId) {
-        cleanUnused();
-        return Optional.ofNullable(connections.get(connectionId))
-            .flatMap(ref -> Optional.ofNullable(ref.get()));
+        return Optional.ofNullable(connections.get(connectionId));
     }
 
     /**
-     * Return all connections that belong to the given console as a new
-     * unmodifiable set.
+     * Return all open connections that belong to the given console.
+     * The result is an unmodifiable view of the registry's index, 
+     * i.e. it is not copied and reflects connections being added 
+     * or closed while iterating (weakly consistent).
      *
      * @param console the console
-     * @return the sets the
+     * @return the connections
      */
     public static Set<ConsoleConnection> byConsole(WebConsole console) {
-        cleanUnused();
-        Set<ConsoleConnection> result = new HashSet<>();
-        for (WeakReference<ConsoleConnection> psr : connections.values()) {
-            ConsoleConnection psess = psr.get();
-            if (psess != null && psess.console != null
-                && psess.console.equals(console)) {
-                result.add(psess);
-            }
-        }
-        return Collections.unmodifiableSet(result);
+        return Collections.unmodifiableSet(
+            byConsole.getOrDefault(console, Collections.emptySet()));
+    }
+
+    /**
+     * Return all open connections that are associated with the
+     * given browser session. The result is an unmodifiable view
+     * of the registry's index, see {@link #byConsole(WebConsole)}.
+     *
+     * @param session the session
+     * @return the connections
+     */
+    public static Set<ConsoleConnection> bySession(Session session) {
+        return Collections.unmodifiableSet(
+            bySession.getOrDefault(session, Collections.emptySet()));
     }
 
     /**
@@ -228,11 +238,12 @@ public final class ConsoleConnection extends DefaultIOSubchannel {
     /* default */ static ConsoleConnection lookupOrCreate(
             String connectionId, WebConsole console,
             Set<Locale> supportedLocales, long timeout) {
-        cleanUnused();
-        return connections.computeIfAbsent(connectionId,
-            psi -> new ConnectionReference(new ConsoleConnection(
-                console, supportedLocales, connectionId, timeout)))
-            .get();
+        return connections.computeIfAbsent(connectionId, psi -> {
+            var connection = new ConsoleConnection(
+                console, supportedLocales, connectionId, timeout);
+            addToIndex(byConsole, console, connection);
+            return connection;
+        });
     }
 
     /**
@@ -244,7 +255,7 @@ public final class ConsoleConnection extends DefaultIOSubchannel {
     /* default */ ConsoleConnection replaceId(String newConnectionId) {
         connections.remove(connectionId);
         connectionId = newConnectionId;
-        connections.put(connectionId, new ConnectionReference(this));
+        connections.put(connectionId, this);
         connected = true;
         return this;
     }
@@ -256,8 +267,9 @@ public final class ConsoleConnection extends DefaultIOSubchannel {
         this.supportedLocales = supportedLocales;
         this.connectionId = connectionId;
         this.timeout = timeout;
-        timeoutTimer = Components.schedule(
-            tmr -> close(), Duration.ofMillis(timeout));
+        metrics = new TrafficMetrics(console.metrics());
+        refreshedAt = System.currentTimeMillis();
+        console.connectionTimeouts().add(this);
     }
 
     /**
@@ -269,7 +281,8 @@ public final class ConsoleConnection extends DefaultIOSubchannel {
      */
     public ConsoleConnection setTimeout(long timeout) {
         this.timeout = timeout;
-        timeoutTimer.reschedule(Duration.ofMillis(timeout));
+        refresh();
+        console.connectionTimeouts().add(this);
         return this;
     }
 
@@ -279,27 +292,40 @@ public final class ConsoleConnection extends DefaultIOSubchannel {
      * @return the instant
      */
     public Instant expiresAt() {
-        return timeoutTimer.scheduledFor();
+        return Instant.ofEpochMilli(expiresAtMillis());
+    }
+
+    /* default */ long expiresAtMillis() {
+        return refreshedAt + timeout;
     }
 
     /**
-     * Resets the {@link ConsoleConnection}'s timeout.
+     * Resets the {@link ConsoleConnection}'s timeout. This only
+     * records the current time, the expiry is checked periodically
+     * by the {@link WebConsole}.
      */
     public void refresh() {
-        timeoutTimer.reschedule(Duration.ofMillis(timeout));
+        refreshedAt = System.currentTimeMillis();
     }
 
     /**
      * Close this connection. The connection is removed from the
-     * set of open connections and a {@link Closed} event is fired 
+     * registry of open connections and a {@link Closed} event is fired 
      * on the connection. 
      */
     public void close() {
-        // Not necessarily invoked by timer.
-        timeoutTimer.cancel();
         if (connections.remove(connectionId) != null) {
             connected = false;
             open = false;
+            commandBatch.close();
+            deferredCommands.close();
+            removeFromIndex(byConsole, console, this);
+            synchronized (this) {
+                if (indexedSession != null) {
+                    removeFromIndex(bySession, indexedSession, this);
+                    indexedSession = null;
+                }
+            }
             console.newEventPipeline().fire(new Closed<>(), this);
         }
     }
@@ -326,6 +352,15 @@ public final class ConsoleConnection extends DefaultIOSubchannel {
         return connected;
     }
 
+    /**
+     * Returns the console that this connection belongs to.
+     *
+     * @return the web console
+     */
+    /* default */ WebConsole console() {
+        return console;
+    }
+
     /**
      * Provides access to the weblet's channel.
      *
@@ -365,6 +400,18 @@ public final class ConsoleConnection extends DefaultIOSubchannel {
         if (locale == null) {
             locale = session().locale();
         }
+        synchronized (this) {
+            Session session = sessionSupplier.get().orElse(null);
+            if (session != indexedSession && open) { // NOPMD
+                if (indexedSession != null) {
+                    removeFromIndex(bySession, indexedSession, this);
+                }
+                if (session != null) {
+                    addToIndex(bySession, session, this);
+                }
+                indexedSession = session;
+            }
+        }
         return this;
     }
 
@@ -375,6 +422,109 @@ public final class ConsoleConnection extends DefaultIOSubchannel {
         return upstreamChannel;
     }
 
+    /**
+     * Returns the batch used to collect the JSON representations
+     * of the commands sent to the browser.
+     *
+     * @return the command batch
+     */
+    /* default */ CommandBatch commandBatch() {
+        return commandBatch;
+    }
+
+    /**
+     * Returns the commands deferred until the content of a
+     * rendering is available.
+     *
+     * @return the deferred commands
+     */
+    /* default */ DeferredCommands deferredCommands() {
+        return deferredCommands;
+    }
+
+    /**
+     * Returns the collector for the console manifest.
+     *
+     * @return the manifest collector
+     */
+    /* default */ ConsoleManifest.Collector manifestCollector() {
+        return manifestCollector;
+    }
+
+    /**
+     * Returns the queue that tracks the commands fired on the
+     * response pipeline.
+     *
+     * @return the command queue
+     */
+    /* default */ CommandQueue commandQueue() {
+        return commandQueue;
+    }
+
+    /**
+     * Fires the given event on the response pipeline. A
+     * {@link ConsoleCommand} is subject to the outbound queue 
+     * limit configured with 
+     * {@link ConsoleWeblet#setCommandQueueLimit(int)}, i.e. 
+     * the invocation may block or the command may be dropped
+     * if the browser doesn't keep up with the commands sent
+     * to it.
+     *
+     * @param <T> the event type
+     * @param event the event
+     * @return the event
+     */
+    @Override
+    public <T extends Event<?>> T respond(T event) {
+        if (event instanceof ConsoleCommand command) {
+            commandQueue.fire(command);
+            return event;
+        }
+        return super.respond(event);
+    }
+
+    /**
+     * Returns the number of {@link ConsoleCommand}s that have 
+     * been fired but not been processed yet.
+     *
+     * @return the queue depth
+     */
+    public int pendingCommands() {
+        return commandQueue.depth();
+    }
+
+    /**
+     * Returns the number of {@link ConsoleCommand}s that have 
+     * been dropped because the outbound queue limit was reached.
+     *
+     * @return the number of dropped commands
+     */
+    public long droppedCommands() {
+        return commandQueue.droppedCount();
+    }
+
+    /**
+     * Returns the number of notifications that have been replaced
+     * by a newer notification with the same coalescing key 
+     * before being sent.
+     *
+     * @return the number of coalesced notifications
+     */
+    public long coalescedCommands() {
+        return commandQueue.coalescedCount();
+    }
+
+    /**
+     * Returns the metrics for this connection. The values recorded
+     * are also added to the metrics of the console. Histograms are
+     * only maintained by the metrics of the console.
+     *
+     * @return the metrics
+     */
+    public TrafficMetrics metrics() {
+        return metrics;
+    }
+
     /**
      * The console connection id is used in the communication between the
      * browser and the server. It is not guaranteed to remain the same
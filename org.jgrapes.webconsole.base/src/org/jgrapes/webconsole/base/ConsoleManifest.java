@@ -0,0 +1,312 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.jgrapes.webconsole.base.events.AddConletType;
+import org.jgrapes.webconsole.base.events.AddPageResources;
+import org.jgrapes.webconsole.base.events.AddPageResources.ScriptResource;
+import org.jgrapes.webconsole.base.events.ConsoleCommand;
+import org.jgrapes.webconsole.base.events.SimpleConsoleCommand;
+
+/**
+ * The {@link AddPageResources} and {@link AddConletType} commands
+ * sent in response to a {@link org.jgrapes.webconsole.base.events.ConsoleReady}
+ * event, encoded as a single JSON array.
+ *
+ * The manifest is identified by a hash of its content. The browser
+ * keeps the last manifest received in its local storage and reports
+ * its hash when the console is loaded. If the hash of the
+ * manifest for the new console connection matches the hash
+ * reported, only the hash is sent back.
+ */
+/* default */ final class ConsoleManifest {
+
+    private static final int MAX_PRELOADS = 32;
+
+    private final String hash;
+    private final RawValue commands;
+    private final Map<String, ResourceCache.Entry> resources;
+    private final List<String> preloadLinks;
+
+    private ConsoleManifest(String hash, RawValue commands,
+            Map<String, ResourceCache.Entry> resources,
+            List<String> preloadLinks) {
+        this.hash = hash;
+        this.commands = commands;
+        this.resources = resources;
+        this.preloadLinks = preloadLinks;
+    }
+
+    /**
+     * Creates a manifest from the given commands.
+     *
+     * @param commands the commands
+     * @return the console manifest
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws InterruptedException the interrupted exception
+     */
+    /* default */ static ConsoleManifest of(List<ConsoleCommand> commands)
+            throws IOException, InterruptedException {
+        return of(commands, Collections.emptyMap());
+    }
+
+    /**
+     * Creates a manifest from the given commands. The resources
+     * are made available by the manifest, because they are referenced
+     * by the commands (see {@link BundledResources}).
+     *
+     * @param commands the commands
+     * @param resources the resources by name
+     * @return the console manifest
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws InterruptedException the interrupted exception
+     */
+    /* default */ static ConsoleManifest of(List<ConsoleCommand> commands,
+            Map<String, ResourceCache.Entry> resources)
+            throws IOException, InterruptedException {
+        String encoded = serialize(commands);
+        return new ConsoleManifest(hash(encoded), new RawValue(encoded),
+            resources, preloadLinks(commands));
+    }
+
+    private static String serialize(List<ConsoleCommand> commands)
+            throws IOException, InterruptedException {
+        StringBuilder json = new StringBuilder(commands.size() * 256);
+        json.append('[');
+        for (ConsoleCommand command : commands) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            StringWriter out = new StringWriter();
+            command.emitJson(out);
+            json.append(out.getBuffer());
+        }
+        json.append(']');
+        return json.toString();
+    }
+
+    private static String hash(String encoded) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(encoded.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Guaranteed to be available
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the values for `Link` headers that cause the browser
+     * to preload the scripts and style sheets requested by the
+     * commands. Resources from other servers are not included.
+     *
+     * @param commands the commands
+     * @return the links
+     */
+    private static List<String> preloadLinks(List<ConsoleCommand> commands) {
+        List<String> links = new ArrayList<>();
+        for (ConsoleCommand command : commands) {
+            ScriptResource[] scripts;
+            URI[] cssUris;
+            if (command instanceof AddConletType act) {
+                scripts = act.scriptResources();
+                cssUris = act.cssUris();
+            } else if (command instanceof AddPageResources apr) {
+                scripts = apr.scriptResources();
+                cssUris = apr.cssUris();
+            } else {
+                continue;
+            }
+            for (URI uri : cssUris) {
+                if (isLocal(uri)) {
+                    links.add("<" + uri + ">; rel=preload; as=style");
+                }
+            }
+            for (ScriptResource script : scripts) {
+                if (script.scriptUri() == null || script.scriptSource() != null
+                    || !isLocal(script.scriptUri())) {
+                    continue;
+                }
+                links.add("module".equals(script.getScriptType())
+                    ? "<" + script.scriptUri() + ">; rel=modulepreload"
+                    : "<" + script.scriptUri() + ">; rel=preload; as=script");
+            }
+        }
+        return Collections.unmodifiableList(links.subList(0,
+            Math.min(links.size(), MAX_PRELOADS)));
+    }
+
+    private static boolean isLocal(URI uri) {
+        return uri.getScheme() == null && uri.getRawAuthority() == null;
+    }
+
+    /**
+     * Returns the hash.
+     *
+     * @return the hash
+     */
+    /* default */ String hash() {
+        return hash;
+    }
+
+    /**
+     * Returns the values for `Link` headers that cause the browser
+     * to preload the resources requested by the manifest.
+     *
+     * @return the links
+     */
+    /* default */ List<String> preloadLinks() {
+        return preloadLinks;
+    }
+
+    /**
+     * Returns the resource with the given name.
+     *
+     * @param name the name
+     * @return the resource
+     */
+    /* default */ Optional<ResourceCache.Entry> resource(String name) {
+        return Optional.ofNullable(resources.get(name));
+    }
+
+    /**
+     * Returns the command that sends the manifest to the browser.
+     * The content is omitted if the browser knows the manifest
+     * already.
+     *
+     * @param knownHash the hash of the manifest known by the browser
+     * @return the command
+     */
+    /* default */ ConsoleCommand command(String knownHash) {
+        if (hash.equals(knownHash)) {
+            return new SimpleConsoleCommand("manifest", hash, null);
+        }
+        return new SimpleConsoleCommand("manifest", hash, commands);
+    }
+
+    /**
+     * Collects the commands for a manifest while the console
+     * connection is being prepared.
+     */
+    /* default */ static final class Collector {
+
+        private volatile boolean collecting;
+        private volatile String knownHash;
+        private volatile long version;
+        private final List<ConsoleCommand> commands = new ArrayList<>();
+
+        /**
+         * Sets the hash of the manifest known by the browser.
+         *
+         * @param knownHash the new known hash
+         */
+        /* default */ void setKnownHash(String knownHash) {
+            this.knownHash = knownHash;
+        }
+
+        /**
+         * Returns the hash of the manifest known by the browser.
+         *
+         * @return the hash
+         */
+        /* default */ String knownHash() {
+            return knownHash;
+        }
+
+        /**
+         * Starts collecting.
+         *
+         * @param version the version of the component configuration
+         * that the collected commands are derived from
+         */
+        /* default */ void start(long version) {
+            synchronized (commands) {
+                commands.clear();
+            }
+            this.version = version;
+            collecting = true;
+        }
+
+        /**
+         * Returns the version passed to {@link #start(long)}.
+         *
+         * @return the version
+         */
+        /* default */ long version() {
+            return version;
+        }
+
+        /**
+         * Adds the command to the manifest if the collector is
+         * collecting and the command is an {@link AddPageResources}
+         * or {@link AddConletType} command.
+         *
+         * @param command the command
+         * @return true, if the command has been added
+         */
+        /* default */ boolean offer(ConsoleCommand command) {
+            if (!collecting || !(command instanceof AddPageResources
+                || command instanceof AddConletType)) {
+                return false;
+            }
+            synchronized (commands) {
+                commands.add(command);
+            }
+            return true;
+        }
+
+        /**
+         * Checks if the collector is collecting.
+         *
+         * @return true, if is collecting
+         */
+        /* default */ boolean isCollecting() {
+            return collecting;
+        }
+
+        /**
+         * Stops collecting and returns the collected commands.
+         *
+         * @return the commands
+         */
+        /* default */ List<ConsoleCommand> finish() {
+            collecting = false;
+            synchronized (commands) {
+                List<ConsoleCommand> result = new ArrayList<>(commands);
+                commands.clear();
+                return Collections.unmodifiableList(result);
+            }
+        }
+    }
+}
@@ -22,19 +22,27 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.CharBuffer;
 import java.text.ParseException;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import org.jdrupes.httpcodec.protocols.http.HttpConstants.HttpStatus;
 import org.jdrupes.httpcodec.protocols.http.HttpField;
 import org.jdrupes.httpcodec.protocols.http.HttpResponse;
@@ -42,10 +50,13 @@ import org.jdrupes.httpcodec.types.Converters;
 import org.jgrapes.core.Channel;
 import org.jgrapes.core.ClassChannel;
 import org.jgrapes.core.Component;
+import org.jgrapes.core.Event;
 import org.jgrapes.core.EventPipeline;
 import org.jgrapes.core.Manager;
 import org.jgrapes.core.annotation.Handler;
 import org.jgrapes.core.annotation.HandlerDefinition.ChannelReplacements;
+import org.jgrapes.core.events.Attached;
+import org.jgrapes.core.events.Detached;
 import org.jgrapes.http.LanguageSelector.Selection;
 import org.jgrapes.http.ResourcePattern;
 import org.jgrapes.http.ResponseCreationSupport;
@@ -64,10 +75,18 @@ import org.jgrapes.io.events.Input;
 import org.jgrapes.io.events.Output;
 import org.jgrapes.io.util.CharBufferWriter;
 import org.jgrapes.io.util.LinkedIOSubchannel;
+import org.jgrapes.webconsole.base.events.AddConletType;
+import org.jgrapes.webconsole.base.events.AddPageResources;
+import org.jgrapes.webconsole.base.events.AddPageResources.ScriptResource;
 import org.jgrapes.webconsole.base.events.ConletResourceRequest;
 import org.jgrapes.webconsole.base.events.ConsoleCommand;
+import org.jgrapes.webconsole.base.events.ConsoleConfigured;
+import org.jgrapes.webconsole.base.events.ConsolePrepared;
+import org.jgrapes.webconsole.base.events.ConsoleReady;
 import org.jgrapes.webconsole.base.events.JsonInput;
+import org.jgrapes.webconsole.base.events.NotifyConletView;
 import org.jgrapes.webconsole.base.events.PageResourceRequest;
+import org.jgrapes.webconsole.base.events.RenderConlet;
 import org.jgrapes.webconsole.base.events.ResourceRequestCompleted;
 import org.jgrapes.webconsole.base.events.SetLocale;
 import org.jgrapes.webconsole.base.events.SetLocaleCompleted;
@@ -103,6 +122,10 @@ public abstract class ConsoleWeblet extends Component {
     private static final String CONSOLE_SESSION_IDS
         = ConsoleWeblet.class.getName() + ".consoleConnectionId";
     private static final String UTF_8 = "utf-8";
+    private static final int MAX_MANIFESTS = 32;
+    private static final Duration MAX_BATCH_HOLD = Duration.ofSeconds(2);
+    private static final int MAX_RESOLVED = 1024;
+    private static final char KEEP_ALIVE = '.';
 
     private URI prefix;
     private final WebConsole console;
@@ -110,11 +133,44 @@ public abstract class ConsoleWeblet extends Component {
 
     private final RenderSupport renderSupport = new RenderSupportImpl();
     private boolean useMinifiedResources = true;
+    private boolean useHashedResourceUris;
+    private boolean useBundledResources;
     private long csNetworkTimeout = 45_000;
     private long csRefreshInterval = 30_000;
     private long csInactivityTimeout = -1;
+    private Duration csBatchWindow = Duration.ZERO;
+    private int csBatchLimit = 65_536;
+    private int csReplayLimit;
+    private Duration renderTimeout = Duration.ZERO;
+    private String renderPlaceholder
+        = "<div class=\"jgrapes-conlet-render-timeout\"></div>";
+    private boolean nonBlockingInput;
+    private int csQueueLimit;
+    private final Map<Class<?>, QueueOverflowPolicy> csQueuePolicies
+        = new ConcurrentHashMap<>();
+    private final AtomicLong manifestVersion = new AtomicLong();
+    @SuppressWarnings("serial")
+    private final Map<String, ConsoleManifest> manifests
+        = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, ConsoleManifest> eldest) {
+                return size() > MAX_MANIFESTS;
+            }
+        };
+    @SuppressWarnings("serial")
+    private final Map<String, List<String>> preloadLinks
+        = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, List<String>> eldest) {
+                return size() > MAX_MANIFESTS;
+            }
+        };
 
     private List<Class<?>> consoleResourceSearchSeq;
+    private final Map<String, Optional<URL>> resolvedConsoleResources
+        = new ConcurrentHashMap<>();
     private final List<Class<?>> resourceClasses = new ArrayList<>();
     private final ResourceBundle.Control resourceControl
         = new ConsoleResourceBundleControl(resourceClasses);
@@ -158,7 +214,8 @@ public abstract class ConsoleWeblet extends Component {
         } catch (ParseException e) {
             throw new IllegalArgumentException(e);
         }
-        consoleResourceSearchSeq = consoleHierarchy();
+        consoleResourceSearchSeq
+            = new CopyOnWriteArrayList<>(consoleHierarchy());
 
         resourceClasses.addAll(consoleHierarchy());
         updateSupportedLocales();
@@ -291,6 +348,241 @@ public abstract class ConsoleWeblet extends Component {
         return Duration.ofMillis(csInactivityTimeout);
     }
 
+    /**
+     * Sets the window for collecting {@link ConsoleCommand}s. Commands
+     * sent to a console connection are collected and sent as a single
+     * JSON RPC batch (i.e. a single WebSocket message). The batch is 
+     * sent when the given window has elapsed after the first command
+     * was added to it. With the default value of zero, the batch
+     * is sent as soon as all commands queued for the connection at the
+     * time the first command was added to the batch have been processed.
+     * While the console is being prepared, sending the batch is
+     * held back (see {@link #onConsoleReady}).
+     * 
+     * @param window the window
+     * @return the console weblet for easy chaining
+     */
+    public ConsoleWeblet setCommandBatchWindow(Duration window) {
+        csBatchWindow = window;
+        return this;
+    }
+
+    /**
+     * Returns the window for collecting {@link ConsoleCommand}s.
+     *
+     * @return the window
+     */
+    public Duration commandBatchWindow() {
+        return csBatchWindow;
+    }
+
+    /**
+     * Sets the maximum size (in characters) of the JSON RPC batch
+     * with collected {@link ConsoleCommand}s. A batch is sent 
+     * immediately if the limit is exceeded. Setting the limit to
+     * zero disables batching, i.e. every command is sent as
+     * a WebSocket message of its own. The value defaults to 64 KiB.
+     *
+     * @param limit the limit
+     * @return the console weblet for easy chaining
+     */
+    public ConsoleWeblet setCommandBatchLimit(int limit) {
+        csBatchLimit = limit;
+        return this;
+    }
+
+    /**
+     * Returns the maximum size of a batch of {@link ConsoleCommand}s.
+     *
+     * @return the limit
+     */
+    public int commandBatchLimit() {
+        return csBatchLimit;
+    }
+
+    /**
+     * Sets the maximum size (in characters) of the messages kept
+     * for a console connection in order to be replayed when the
+     * browser reconnects after a loss of the WebSocket connection.
+     * If the messages missed by the browser are no longer
+     * available, the browser requests a fresh rendering of all
+     * conlets.
+     * 
+     * The messages are kept for every connection, including the
+     * connections of browsers that are never going to reconnect,
+     * until the connection times out. A limit of 64 KiB thus costs
+     * up to 128 KiB of heap per connection (Java strings use two
+     * bytes per character unless all characters are Latin-1).
+     * Replay is therefore disabled (limit zero) by default.
+     *
+     * @param limit the limit
+     * @return the console weblet for easy chaining
+     */
+    public ConsoleWeblet setCommandReplayLimit(int limit) {
+        csReplayLimit = limit;
+        return this;
+    }
+
+    /**
+     * Returns the maximum size of the messages kept for replay.
+     *
+     * @return the limit
+     */
+    public int commandReplayLimit() {
+        return csReplayLimit;
+    }
+
+    /**
+     * Sets the maximum time to wait for the content of a 
+     * {@link RenderConlet} command. Sending a {@link RenderConlet}
+     * command whose content is not available yet is deferred until
+     * the content becomes available. Commands for other conlets are
+     * sent in the meantime, while later commands for the same conlet
+     * are deferred as well. If the content doesn't become available
+     * within the given time, the command is sent with the
+     * {@link #renderPlaceholder() placeholder} as content. The
+     * placeholder is only a temporary fallback. When the content
+     * becomes available later, the command is sent again with
+     * the actual content, unless the conlet has been rendered
+     * again in the same modes or has been deleted in the meantime.
+     * The default value zero means that there is no timeout.
+     *
+     * @param timeout the timeout
+     * @return the console weblet for easy chaining
+     */
+    public ConsoleWeblet setRenderTimeout(Duration timeout) {
+        renderTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * Returns the maximum time to wait for the content of a 
+     * {@link RenderConlet} command.
+     *
+     * @return the timeout
+     */
+    public Duration renderTimeout() {
+        return renderTimeout;
+    }
+
+    /**
+     * Sets the HTML that is sent as content if the content of a 
+     * {@link RenderConlet} command isn't available within the
+     * {@link #setRenderTimeout(Duration) render timeout}.
+     *
+     * @param placeholder the placeholder
+     * @return the console weblet for easy chaining
+     */
+    public ConsoleWeblet setRenderPlaceholder(String placeholder) {
+        renderPlaceholder = placeholder;
+        return this;
+    }
+
+    /**
+     * Returns the HTML that is sent as content if the content of a 
+     * {@link RenderConlet} command isn't available in time.
+     *
+     * @return the placeholder
+     */
+    public String renderPlaceholder() {
+        return renderPlaceholder;
+    }
+
+    /**
+     * Sets the maximum number of {@link ConsoleCommand}s that may
+     * be pending for a console connection, i.e. that have been 
+     * fired with {@link ConsoleConnection#respond(Event)} but 
+     * have not been sent yet. If the limit is reached, the
+     * {@link QueueOverflowPolicy} configured for the type
+     * of the new command is applied. The default value zero means
+     * that there is no limit.
+     * 
+     * The limit only applies to commands that are sent independent
+     * of the handling of an event for the connection, e.g. by a
+     * timer or by a thread that sends commands to all connections.
+     * Commands that are sent while handling an event for the
+     * connection (e.g. the commands sent in response to the
+     * {@link ConsoleReady} event or to a request from the browser)
+     * are always accepted.
+     * 
+     * Commands without a configured policy are handled according
+     * to {@link QueueOverflowPolicy#DISCONNECT}, i.e. a browser
+     * that doesn't keep up with the commands is disconnected
+     * and no sender is ever blocked. A different default can be
+     * set with `setCommandQueuePolicy(ConsoleCommand.class, ...)`.
+     *
+     * @param limit the limit
+     * @return the console weblet for easy chaining
+     */
+    public ConsoleWeblet setCommandQueueLimit(int limit) {
+        csQueueLimit = limit;
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of pending {@link ConsoleCommand}s.
+     *
+     * @return the limit
+     */
+    public int commandQueueLimit() {
+        return csQueueLimit;
+    }
+
+    /**
+     * Sets the policy to apply when a command of the given type
+     * (or a type derived from it) is sent to a console connection
+     * whose queue limit has been reached. Commands without a
+     * configured policy are handled according to 
+     * {@link QueueOverflowPolicy#DISCONNECT}.
+     *
+     * @param type the command type
+     * @param policy the policy
+     * @return the console weblet for easy chaining
+     */
+    public ConsoleWeblet setCommandQueuePolicy(
+            Class<? extends ConsoleCommand> type, QueueOverflowPolicy policy) {
+        csQueuePolicies.put(type, policy);
+        return this;
+    }
+
+    /**
+     * Returns the policy configured for the given type of command.
+     *
+     * @param type the command type
+     * @return the policy
+     */
+    public Optional<QueueOverflowPolicy> commandQueuePolicy(
+            Class<? extends ConsoleCommand> type) {
+        return Optional.ofNullable(csQueuePolicies.get(type));
+    }
+
+    /**
+     * Determines how the JSON messages received from the browser
+     * are decoded. By default, a {@link WebSocketInputSink} is used
+     * for each connection, which decodes the messages using a
+     * thread of its own. If set to `true`, a 
+     * {@link WebSocketInputDecoder} is used instead, which decodes
+     * the messages while handling the {@link Input} events and
+     * therefore doesn't need a thread.
+     *
+     * @param nonBlockingInput whether to use non-blocking decoding
+     * @return the console weblet for easy chaining
+     */
+    public ConsoleWeblet setNonBlockingInput(boolean nonBlockingInput) {
+        this.nonBlockingInput = nonBlockingInput;
+        return this;
+    }
+
+    /**
+     * Returns whether JSON messages are decoded without using
+     * a thread for each connection.
+     *
+     * @return the result
+     */
+    public boolean nonBlockingInput() {
+        return nonBlockingInput;
+    }
+
     /**
      * Returns whether resources are minified.
      *
@@ -309,6 +601,85 @@ public abstract class ConsoleWeblet extends Component {
         this.useMinifiedResources = useMinifiedResources;
     }
 
+    /**
+     * Returns whether the URIs created by the {@link RenderSupport}
+     * include the hash of the resource's content.
+     *
+     * @return the result
+     */
+    public boolean useHashedResourceUris() {
+        return useHashedResourceUris;
+    }
+
+    /**
+     * Determines if the URIs created by the {@link RenderSupport}
+     * include the hash of the resource's content. Defaults to `false`.
+     * 
+     * If set, the URIs get an additional query parameter with the hash.
+     * Resources requested with the hash of their current content are
+     * sent with `Cache-Control: immutable` and a maximum age of one
+     * year, so the browser doesn't have to revalidate them when the
+     * console is reloaded. The URIs without the hash remain valid.
+     * 
+     * The hashes of resources that are looked up by this class
+     * (console resources) are known when the URIs are created. The
+     * hashes of page and conlet resources are only known after the
+     * resource has been sent once, because these resources are
+     * provided by other components. If the hash isn't known (yet),
+     * the URI is created without the hash.
+     * 
+     * The URIs of JavaScript resources created by the 
+     * {@link RenderSupport} don't get the hash, because they may be
+     * used for ES modules that are also imported by other modules
+     * (e.g. `jgconsole.js`) using relative URIs. The browser would
+     * otherwise load two instances of such a module. The hash is
+     * added to the URIs of classic (non-module) scripts when they
+     * are sent to the browser with {@link AddPageResources} or
+     * {@link AddConletType}.
+     *
+     * @param useHashedResourceUris the value to set
+     * @return the console weblet for easy chaining
+     */
+    public ConsoleWeblet setUseHashedResourceUris(
+            boolean useHashedResourceUris) {
+        this.useHashedResourceUris = useHashedResourceUris;
+        return this;
+    }
+
+    /**
+     * Returns whether scripts and style sheets are bundled.
+     *
+     * @return the result
+     */
+    public boolean useBundledResources() {
+        return useBundledResources;
+    }
+
+    /**
+     * Determines if the classic scripts and the style sheets requested
+     * by {@link AddPageResources} and {@link AddConletType} commands
+     * in response to {@link ConsoleReady} are combined into a single
+     * script and a single style sheet. Defaults to `false`.
+     * 
+     * The bundles are created when the console is loaded. They are
+     * named by the hash of their content and sent as immutable. Only
+     * resources that have been requested by a browser before (and
+     * have been obtained from the class path) can be bundled, so the
+     * console must have been loaded once with the resources requested
+     * individually before the bundles are used. The bundles can only
+     * be created if the ordering constraints expressed by
+     * {@link ScriptResource#requires()} are met. Modules are always
+     * loaded individually.
+     *
+     * @param useBundledResources the value to set
+     * @return the console weblet for easy chaining
+     */
+    public ConsoleWeblet setUseBundledResources(
+            boolean useBundledResources) {
+        this.useBundledResources = useBundledResources;
+        return this;
+    }
+
     /**
      * Provides the render support.
      * 
@@ -471,13 +842,15 @@ public abstract class ConsoleWeblet extends Component {
                 requestUri.getPath(), prefixSegs + 2), channel);
             return;
         case "console-base-resource":
-            ResponseCreationSupport.sendStaticContent(event, channel,
-                path -> ConsoleWeblet.class.getResource(requestParts[1]),
-                null);
+            ResourceCache.send(event, channel,
+                ConsoleWeblet.class.getResource(requestParts[1]));
             return;
         case "page-resource":
             providePageResource(event, channel, requestParts[1]);
             return;
+        case "console-bundle":
+            sendBundle(event, channel, requestParts[1]);
+            return;
         case "console-connection":
             handleSessionRequest(event, channel, requestParts[1]);
             return;
@@ -501,10 +874,47 @@ public abstract class ConsoleWeblet extends Component {
             IOSubchannel channel, UUID consoleConnectionId)
             throws IOException, InterruptedException;
 
+    /**
+     * Returns the values for `Link` headers that cause the browser
+     * to preload the scripts and style sheets requested by the
+     * {@link AddPageResources} and {@link AddConletType} commands
+     * that were sent when a console was last prepared for the
+     * same locale and roles as those of the given request. Derived
+     * classes should add these headers to the response in
+     * {@link #renderConsole renderConsole}, so that the resources are
+     * downloaded while the console connection is being established.
+     * The list is empty if no console has been prepared for the
+     * locale and roles yet.
+     *
+     * @param event the request for the console page
+     * @return the links
+     */
+    protected List<String> preloadLinks(Request.In.Get event) {
+        Locale locale = event.associated(Selection.class)
+            .map(sel -> sel.get()[0]).orElse(Locale.getDefault());
+        String key = audienceKey(locale, Session.from(event));
+        synchronized (preloadLinks) {
+            return preloadLinks.getOrDefault(key, Collections.emptyList());
+        }
+    }
+
+    /**
+     * Returns a key for the locale and the roles of the user
+     * associated with the session. Consoles prepared for the
+     * same key send the same commands.
+     */
+    private static String audienceKey(Locale locale, Session session) {
+        return locale.toLanguageTag() + "|"
+            + WebConsoleUtils.rolesFromSession(session).stream()
+                .map(ConsoleRole::getName).sorted()
+                .collect(Collectors.joining(","));
+    }
+
     /**
      * Provide a console resource. The implementation tries to load the
      * resource using {@link Class#getResource(String)} for each class
      * in the class hierarchy, starting with the finally derived class.
+     * Resources are sent using the {@link ResourceCache}.
      *
      * @param event the event
      * @param requestPath the request path relativized to the 
@@ -513,13 +923,59 @@ public abstract class ConsoleWeblet extends Component {
      */
     protected void provideConsoleResource(Request.In.Get event,
             String requestPath, IOSubchannel channel) {
-        for (Class<?> cls : consoleResourceSearchSeq) {
-            if (ResponseCreationSupport.sendStaticContent(event, channel,
-                path -> cls.getResource(requestPath),
-                null)) {
-                break;
-            }
+        ResourceCache.send(event, channel,
+            resolveConsoleResource(requestPath).orElse(null));
+    }
+
+    /**
+     * Looks up a console resource as described in
+     * {@link #provideConsoleResource(Request.In.Get, String, IOSubchannel)}.
+     * The result (including a failed lookup) is cached until
+     * {@link #prependConsoleResourceProvider(Class)} is invoked.
+     *
+     * @param requestPath the request path
+     * @return the resource
+     */
+    private Optional<URL> resolveConsoleResource(String requestPath) {
+        Optional<URL> resolved = resolvedConsoleResources.get(requestPath);
+        if (resolved != null) {
+            return resolved;
+        }
+        resolved = consoleResourceSearchSeq.stream()
+            .map(cls -> cls.getResource(requestPath))
+            .filter(Objects::nonNull).findFirst();
+        if (resolvedConsoleResources.size() >= MAX_RESOLVED) {
+            // Protect against arbitrary paths filling the cache
+            resolvedConsoleResources.clear();
+        }
+        resolvedConsoleResources.put(requestPath, resolved);
+        return resolved;
+    }
+
+    /**
+     * Sends a bundle created by {@link #setUseBundledResources(boolean)}.
+     *
+     * @param event the event
+     * @param channel the channel
+     * @param name the name of the bundle
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void sendBundle(Request.In.Get event, IOSubchannel channel,
+            String name) throws IOException {
+        Optional<ResourceCache.Entry> bundle;
+        synchronized (manifests) {
+            bundle = manifests.values().stream()
+                .map(manifest -> manifest.resource(name))
+                .flatMap(Optional::stream).findFirst();
+        }
+        if (bundle.isEmpty()) {
+            return;
         }
+        ResourceCache.send(event.httpRequest(), channel, "|bundle:" + name,
+            HttpResponse.contentType(WebConsoleUtils.uriFromPath(name)),
+            bundle.get(), ResourceCache.IMMUTABLE_MAX_AGE);
+        event.setResult(true);
+        event.stop();
     }
 
     /**
@@ -531,6 +987,7 @@ public abstract class ConsoleWeblet extends Component {
      */
     public ConsoleWeblet prependConsoleResourceProvider(Class<?> cls) {
         consoleResourceSearchSeq.add(0, cls);
+        resolvedConsoleResources.clear();
         return this;
     }
 
@@ -639,13 +1096,16 @@ public abstract class ConsoleWeblet extends Component {
                 newKey -> new ConcurrentHashMap<>());
         if (!UUID.fromString(consoleConnectionId) // NOPMD, note negation
             .equals(knownIds.get(prefix))) {
-            channel.setAssociated(this, new String[2]);
+            channel.setAssociated(this, new String[3]);
         } else {
+            // "was" is either the id used before a reload or
+            // the id and number of commands received on reconnect
+            String[] was = Optional.ofNullable(event.httpRequest()
+                .queryData().get("was")).map(vals -> vals.get(0))
+                .map(val -> val.split(":", 2)).orElse(new String[0]);
             channel.setAssociated(this, new String[] {
-                consoleConnectionId,
-                Optional.ofNullable(event.httpRequest().queryData()
-                    .get("was")).map(vals -> vals.get(0)).orElse(null)
-            });
+                consoleConnectionId, was.length > 0 ? was[0] : null,
+                was.length > 1 ? was[1] : null });
         }
         channel.respond(new ProtocolSwitchAccepted(event, "websocket"));
         event.stop();
@@ -737,16 +1197,62 @@ public abstract class ConsoleWeblet extends Component {
                         console, supportedLocales.keySet(), csNetworkTimeout))
                 .setUpstreamChannel(wsChannel)
                 .setSessionSupplier(sessionSupplier);
+        connection.commandQueue().configure(csQueueLimit, csQueuePolicies);
+        connection.commandBatch().setReplayLimit(csReplayLimit);
+        connection.deferredCommands().configure(renderTimeout,
+            renderPlaceholder);
+        if (connectionIds[2] != null) {
+            // Reconnect, replay missed commands before sending new ones
+            connection.commandBatch().awaitResume();
+            connection.responsePipeline().fire(
+                new ResumeCommands(parseSeq(connectionIds[2])), connection);
+        }
         wsChannel.setAssociated(ConsoleConnection.class, connection);
         // Channel now used as JSON input
-        wsChannel.setAssociated(this, new WebSocketInputSink(
-            event.processedBy().get(), connection));
+        if (nonBlockingInput) {
+            wsChannel.setAssociated(this, new WebSocketInputDecoder(
+                event.processedBy().get(), connection));
+        } else {
+            wsChannel.setAssociated(this, new WebSocketInputSink(
+                event.processedBy().get(), connection));
+        }
         // From now on, only consoleConnection.respond may be used to send on
         // the upstream channel.
         connection.upstreamChannel().responsePipeline()
             .restrictEventSource(connection.responsePipeline());
     }
 
+    private static long parseSeq(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Invalidates the cached console manifests when a component
+     * is attached to the tree, because it may contribute conlet
+     * types or page resources.
+     *
+     * @param event the event
+     */
+    @Handler(channels = Channel.class)
+    public void onAttached(Attached event) {
+        manifestVersion.incrementAndGet();
+    }
+
+    /**
+     * Invalidates the cached console manifests when a component
+     * is detached from the tree.
+     *
+     * @param event the event
+     */
+    @Handler(channels = Channel.class)
+    public void onDetached(Detached event) {
+        manifestVersion.incrementAndGet();
+    }
+
     /**
      * Discard the session referenced in the event.
      *
@@ -755,15 +1261,18 @@ public abstract class ConsoleWeblet extends Component {
     @Handler(channels = Channel.class)
     public void onDiscardSession(DiscardSession event) {
         final Session session = event.session();
-        ConsoleConnection.byConsole(console).stream()
-            .filter(cs -> cs != null && cs.session().equals(session))
-            .forEach(cs -> {
+        for (ConsoleConnection cs : ConsoleConnection.bySession(session)) {
+            if (cs.console() == console) {
                 cs.responsePipeline().fire(new Close(), cs.upstreamChannel());
-            });
+            }
+        }
     }
 
     /**
-     * Handles network input (JSON data).
+     * Handles network input (JSON data). A message that consists
+     * of a single "`.`" only refreshes the connection (see 
+     * {@link ConsoleConnection#refresh()}) and is not passed on
+     * to the JSON decoder.
      *
      * @param event the event
      * @param wsChannel the ws channel
@@ -772,11 +1281,28 @@ public abstract class ConsoleWeblet extends Component {
     @Handler
     public void onInput(Input<CharBuffer> event, IOSubchannel wsChannel)
             throws IOException {
+        CharBuffer data = event.buffer().backingBuffer();
+        int chars = data.remaining();
+        Optional<ConsoleConnection> optConnection
+            = wsChannel.associated(ConsoleConnection.class);
+        optConnection.ifPresent(
+            connection -> connection.metrics().recordInput(chars));
+        if (chars == 1 && event.isEndOfRecord()
+            && data.get(data.position()) == KEEP_ALIVE) {
+            optConnection.ifPresent(connection -> {
+                connection.refresh();
+                connection.metrics().recordRequest("keepAlive");
+            });
+            return;
+        }
         Optional<WebSocketInputSink> optWsInputReader
             = wsChannel.associated(this, WebSocketInputSink.class);
         if (optWsInputReader.isPresent()) {
             optWsInputReader.get().feed(event.buffer());
+            return;
         }
+        wsChannel.associated(this, WebSocketInputDecoder.class)
+            .ifPresent(decoder -> decoder.feed(event.buffer()));
     }
 
     /**
@@ -795,6 +1321,12 @@ public abstract class ConsoleWeblet extends Component {
             wsChannel.setAssociated(this, null);
             optWsInputReader.get().feed(null);
         }
+        Optional<WebSocketInputDecoder> optWsInputDecoder
+            = wsChannel.associated(this, WebSocketInputDecoder.class);
+        if (optWsInputDecoder.isPresent()) {
+            wsChannel.setAssociated(this, null);
+            optWsInputDecoder.get().feed(null);
+        }
         wsChannel.associated(ConsoleConnection.class).ifPresent(connection -> {
             // Restore channel to normal mode, see onConsoleReady
             connection.responsePipeline().restrictEventSource(null);
@@ -803,7 +1335,44 @@ public abstract class ConsoleWeblet extends Component {
     }
 
     /**
-     * Sends a command to the console.
+     * Records that the current thread handles an event for the
+     * connection. Commands sent until {@link #onEventHandled} is
+     * invoked are responses and therefore not subject to the limit
+     * set with {@link #setCommandQueueLimit(int)}.
+     *
+     * @param event the event
+     * @param channel the channel
+     */
+    @Handler(channels = ConsoleChannel.class, priority = Integer.MAX_VALUE)
+    public void onEventHandling(Event<?> event, ConsoleConnection channel) {
+        CommandQueue.handling(event);
+    }
+
+    /**
+     * Records that the current thread has finished handling
+     * an event for the connection.
+     *
+     * @param event the event
+     * @param channel the channel
+     */
+    @Handler(channels = ConsoleChannel.class, priority = Integer.MIN_VALUE)
+    public void onEventHandled(Event<?> event, ConsoleConnection channel) {
+        CommandQueue.handling(null);
+    }
+
+    /**
+     * Sends a command to the console. If hashed resource URIs are
+     * used, the URIs of classic scripts added by the command are 
+     * given their hash. Commands that have been 
+     * dropped from the connection's queue (see 
+     * {@link #setCommandQueueLimit(int)}) are ignored and commands
+     * that become part of the console manifest are sent
+     * later (see {@link #onConsolePrepared}). Commands that must
+     * wait for the content of a {@link RenderConlet} command are
+     * sent later as well (see {@link #setRenderTimeout(Duration)}).
+     * The command is added to the connection's current batch. Unless
+     * batching has been disabled (see {@link #setCommandBatchLimit(int)}),
+     * sending the batch is deferred.
      *
      * @param event the event
      * @param channel the channel
@@ -814,11 +1383,371 @@ public abstract class ConsoleWeblet extends Component {
     public void onConsoleCommand(
             ConsoleCommand event, ConsoleConnection channel)
             throws InterruptedException, IOException {
-        IOSubchannel upstream = channel.upstreamChannel();
-        @SuppressWarnings({ "resource", "PMD.CloseResource" })
-        CharBufferWriter out = new CharBufferWriter(upstream,
-            upstream.responsePipeline()).suppressClose();
-        event.emitJson(out);
+        if (useHashedResourceUris) {
+            if (event instanceof AddPageResources apr) {
+                Arrays.stream(apr.scriptResources())
+                    .forEach(ResourceHashes::addRecordedHash);
+            } else if (event instanceof AddConletType act) {
+                Arrays.stream(act.scriptResources())
+                    .forEach(ResourceHashes::addRecordedHash);
+            }
+        }
+        if (!channel.commandQueue().take(event)
+            || channel.manifestCollector().offer(event)
+            || channel.deferredCommands().defer(event)) {
+            return;
+        }
+        CommandBatch batch = channel.commandBatch();
+        batch.add(event);
+        if (!(event instanceof RenderConlet
+            || event instanceof NotifyConletView) && batch.isHeld()) {
+            // Probably awaited by the browser or some component
+            batch.release();
+        }
+        sendBatch(batch, channel);
+    }
+
+    private void sendBatch(CommandBatch batch, ConsoleConnection channel)
+            throws IOException {
+        if (batch.size() >= csBatchLimit) {
+            batch.flush(channel.upstreamChannel());
+            return;
+        }
+        batch.scheduleFlush(csBatchWindow);
+    }
+
+    /**
+     * Sends the commands that have been deferred until the content
+     * of a {@link RenderConlet} command became available or until
+     * a rendering requested when restoring the console layout
+     * has been completed.
+     *
+     * @param event the event
+     * @param channel the channel
+     * @throws InterruptedException the interrupted exception
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Handler(channels = ConsoleChannel.class)
+    public void onSendDeferredCommands(SendDeferredCommands event,
+            ConsoleConnection channel)
+            throws InterruptedException, IOException {
+        List<ConsoleCommand> commands = event.render() == null
+            ? channel.deferredCommands().completed(event.conletId())
+            : channel.deferredCommands().release(event.render(),
+                event.timedOut());
+        if (commands.isEmpty()) {
+            return;
+        }
+        CommandBatch batch = channel.commandBatch();
+        IOException failure = null;
+        for (ConsoleCommand command : commands) {
+            try {
+                batch.add(command);
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        sendBatch(batch, channel);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Sends the {@link ConsoleCommand}s collected for the connection.
+     *
+     * @param event the event
+     * @param channel the channel
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Handler(channels = ConsoleChannel.class)
+    public void onFlushCommands(FlushCommands event,
+            ConsoleConnection channel) throws IOException {
+        channel.commandBatch().flushScheduled(channel.upstreamChannel());
+    }
+
+    /**
+     * Replays the commands missed by the browser after a
+     * reconnect and sends the commands collected in the meantime.
+     *
+     * @param event the event
+     * @param channel the channel
+     * @throws InterruptedException the interrupted exception
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Handler(channels = ConsoleChannel.class)
+    public void onResumeCommands(ResumeCommands event,
+            ConsoleConnection channel)
+            throws InterruptedException, IOException {
+        channel.commandBatch().resume(event.received(),
+            channel.upstreamChannel());
+    }
+
+    /**
+     * Starts collecting the 
+     * {@link org.jgrapes.webconsole.base.events.AddConletType} and
+     * {@link org.jgrapes.webconsole.base.events.AddPageResources}
+     * commands generated in response to the {@link ConsoleReady} event
+     * in a console manifest.
+     * 
+     * Holds back the sending of the other collected 
+     * {@link ConsoleCommand}s while the console is being prepared.
+     * This causes the {@link RenderConlet} and {@link NotifyConletView}
+     * commands generated in response to the {@link ConsoleReady} 
+     * event to be sent in as few batches as possible. Any other
+     * command ends the hold, because the browser's response to it
+     * may be awaited (e.g. `retrieveLocalData` or a login dialog).
+     *
+     * @param event the event
+     * @param channel the channel
+     */
+    @Handler(channels = ConsoleChannel.class, priority = 1_000_000)
+    public void onConsoleReady(ConsoleReady event, ConsoleConnection channel) {
+        channel.manifestCollector().start(manifestVersion.get());
+        if (csBatchLimit > 0) {
+            channel.commandBatch().hold(MAX_BATCH_HOLD);
+        }
+    }
+
+    /**
+     * Sends the commands held back during console preparation. 
+     * Invoked after all components have responded to the
+     * {@link ConsolePrepared} event.
+     *
+     * @param event the event
+     * @param channel the channel
+     */
+    @Handler(channels = ConsoleChannel.class, priority = -1000)
+    public void onConsoleConfigured(ConsoleConfigured event,
+            ConsoleConnection channel) {
+        channel.commandBatch().release();
+    }
+
+    /**
+     * Causes the console manifest to be sent, before any other 
+     * component can respond to the {@link ConsolePrepared} event.
+     * The commands generated in response to the {@link ConsoleReady}
+     * event may still be pending in the connection's response 
+     * pipeline. Therefore the manifest is completed by firing a
+     * {@link SendManifest} event on this pipeline.
+     *
+     * @param event the event
+     * @param channel the channel
+     */
+    @Handler(channels = ConsoleChannel.class, priority = 1_000_000)
+    public void onConsolePrepared(ConsolePrepared event,
+            ConsoleConnection channel) {
+        if (channel.manifestCollector().isCollecting()) {
+            channel.responsePipeline().fire(new SendManifest(), channel);
+        }
+    }
+
+    /**
+     * Sends the console manifest. Manifests are cached by locale, 
+     * roles, a version that changes when components are attached
+     * or detached, the generation of the {@link ResourceCache} (the
+     * manifest may include hashed URIs) and, if resources are
+     * bundled, the bundled resources. The commands collected are
+     * therefore only serialized if no cached manifest exists.
+     * The manifest
+     * starts with a command that lets the browser load the requested
+     * scripts in parallel and execute them in dependency order.
+     * The content of the manifest is only sent if the browser doesn't
+     * have it already.
+     *
+     * @param event the event
+     * @param channel the channel
+     * @throws InterruptedException the interrupted exception
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Handler(channels = ConsoleChannel.class)
+    public void onSendManifest(SendManifest event,
+            ConsoleConnection channel)
+            throws InterruptedException, IOException {
+        ConsoleManifest.Collector collector = channel.manifestCollector();
+        List<ConsoleCommand> commands = collector.finish();
+        String audience = audienceKey(channel.locale(), channel.session());
+        String key = audience + "|" + collector.version() + "|"
+            + ResourceCache.generation();
+        BundledResources bundled = null;
+        if (useBundledResources) {
+            bundled = BundledResources.plan(commands);
+            key += "|" + bundled.signature();
+        }
+        ConsoleManifest manifest;
+        synchronized (manifests) {
+            manifest = manifests.get(key);
+            if (manifest == null) {
+                List<ConsoleCommand> effective = new ArrayList<>(commands);
+                Map<String, ResourceCache.Entry> bundles = Map.of();
+                if (bundled != null && !bundled.isEmpty()) {
+                    bundles = bundled.apply(effective, name -> prefix.resolve(
+                        WebConsoleUtils.uriFromPath("console-bundle/"
+                            + name)));
+                }
+                ScriptLoadPlan.command(effective)
+                    .ifPresent(plan -> effective.add(0, plan));
+                manifest = ConsoleManifest.of(effective, bundles);
+                manifests.put(key, manifest);
+            }
+        }
+        synchronized (preloadLinks) {
+            preloadLinks.put(audience, manifest.preloadLinks());
+        }
+        CommandBatch batch = channel.commandBatch();
+        batch.add(manifest.command(collector.knownHash()));
+        batch.flush(channel.upstreamChannel());
+    }
+
+    /**
+     * The policies that can be applied when a {@link ConsoleCommand}
+     * is sent to a {@link ConsoleConnection} whose queue limit
+     * has been reached.
+     */
+    public enum QueueOverflowPolicy {
+        /**
+         * Wait until the number of pending commands drops below 
+         * the limit. This blocks the thread that sends the command,
+         * which may e.g. be a timer thread or a thread that sends
+         * commands to all connections. A single slow browser then
+         * delays the commands for all other browsers. This policy
+         * should therefore only be configured for command types that
+         * are sent by threads that serve a single connection.
+         * Threads that handle an event for the connection are never
+         * blocked, because the commands that they send are not 
+         * subject to the limit.
+         */
+        BLOCK,
+        /**
+         * Drop the oldest pending command of the same type. If there
+         * is none, the new command is dropped.
+         */
+        DROP_OLDEST,
+        /**
+         * Replace a pending command with the same type and the
+         * same target (conlet and method for
+         * {@link org.jgrapes.webconsole.base.events.NotifyConletView}).
+         * If there is none, behave as {@link #DROP_OLDEST}.
+         */
+        LATEST_WINS,
+        /**
+         * Drop all pending commands and close the connection.
+         * This is the default policy.
+         */
+        DISCONNECT
+    }
+
+    /**
+     * Causes the {@link ConsoleCommand}s collected for a 
+     * {@link ConsoleConnection} to be sent. Fired by the
+     * {@link ConsoleWeblet} on the connection's response pipeline.
+     */
+    public static class FlushCommands extends Event<Void> {
+    }
+
+    /**
+     * Causes the {@link ConsoleCommand}s deferred until the content
+     * of a {@link RenderConlet} command became available (or the
+     * timeout occurred) to be sent. Fired on the connection's
+     * response pipeline.
+     */
+    public static class SendDeferredCommands extends Event<Void> {
+
+        private final RenderConlet render;
+        private final boolean timedOut;
+        private final String conletId;
+
+        /**
+         * Instantiates a new event that signals that the content
+         * of a command has become available or that the timeout
+         * has occurred.
+         *
+         * @param render the command whose content has been awaited
+         * @param timedOut whether the timeout has occurred
+         */
+        public SendDeferredCommands(RenderConlet render, boolean timedOut) {
+            this.render = render;
+            this.timedOut = timedOut;
+            this.conletId = render.conletId();
+        }
+
+        /**
+         * Instantiates a new event that signals that a rendering
+         * requested when restoring the console layout has been
+         * completed.
+         *
+         * @param conletId the id of the conlet
+         */
+        public SendDeferredCommands(String conletId) {
+            this.render = null;
+            this.timedOut = false;
+            this.conletId = conletId;
+        }
+
+        /**
+         * Returns the command whose content has been awaited or
+         * `null` if the event signals the completion of a rendering
+         * requested when restoring the console layout.
+         *
+         * @return the command
+         */
+        public RenderConlet render() {
+            return render;
+        }
+
+        /**
+         * Returns whether the timeout has occurred.
+         *
+         * @return the result
+         */
+        public boolean timedOut() {
+            return timedOut;
+        }
+
+        /**
+         * Returns the conlet id.
+         *
+         * @return the conlet id
+         */
+        public String conletId() {
+            return conletId;
+        }
+    }
+
+    /**
+     * Causes the console manifest to be sent. Fired by the
+     * {@link ConsoleWeblet} on the connection's response pipeline.
+     */
+    public static class SendManifest extends Event<Void> {
+    }
+
+    /**
+     * Causes the {@link ConsoleCommand}s missed by the browser
+     * to be replayed after a reconnect. Fired by the
+     * {@link ConsoleWeblet} on the connection's response pipeline.
+     */
+    public static class ResumeCommands extends Event<Void> {
+
+        private final long received;
+
+        /**
+         * Instantiates a new event.
+         *
+         * @param received the number of commands received by
+         * the browser, negative if unknown
+         */
+        public ResumeCommands(long received) {
+            this.received = received;
+        }
+
+        /**
+         * Returns the number of commands received by the browser.
+         *
+         * @return the number of commands
+         */
+        public long received() {
+            return received;
+        }
     }
 
     /**
@@ -848,28 +1777,54 @@ public abstract class ConsoleWeblet extends Component {
 
         @Override
         public URI consoleBaseResource(URI uri) {
-            return prefix
+            URI result = prefix
                 .resolve(WebConsoleUtils.uriFromPath("console-base-resource/"))
                 .resolve(uri);
+            if (!useHashedResourceUris || !isRelativePath(uri)) {
+                return result;
+            }
+            return ResourceHashes.withHash(result, ResourceHashes
+                .hash(ConsoleWeblet.class.getResource(uri.getPath())));
         }
 
         @Override
         public URI consoleResource(URI uri) {
-            return prefix
+            URI result = prefix
                 .resolve(WebConsoleUtils.uriFromPath("console-resource/"))
                 .resolve(uri);
+            if (!useHashedResourceUris || !isRelativePath(uri)) {
+                return result;
+            }
+            return ResourceHashes.withHash(result, ResourceHashes.hash(
+                resolveConsoleResource(uri.getPath()).orElse(null)));
         }
 
         @Override
         public URI conletResource(String conletType, URI uri) {
-            return prefix.resolve(WebConsoleUtils.uriFromPath(
-                "conlet-resource/" + conletType + "/")).resolve(uri);
+            return withRecordedHash(prefix.resolve(WebConsoleUtils.uriFromPath(
+                "conlet-resource/" + conletType + "/")).resolve(uri));
         }
 
         @Override
         public URI pageResource(URI uri) {
-            return prefix.resolve(WebConsoleUtils.uriFromPath(
-                "page-resource/")).resolve(uri);
+            return withRecordedHash(prefix.resolve(WebConsoleUtils.uriFromPath(
+                "page-resource/")).resolve(uri));
+        }
+
+        private boolean isRelativePath(URI uri) {
+            return !uri.isAbsolute() && uri.getRawAuthority() == null
+                && uri.getRawQuery() == null && uri.getPath() != null
+                && !uri.getPath().startsWith("/")
+                && ResourceHashes.isHashable(uri.getPath());
+        }
+
+        private URI withRecordedHash(URI uri) {
+            if (!useHashedResourceUris || uri.isAbsolute()
+                || !ResourceHashes.isHashable(uri.getPath())) {
+                return uri;
+            }
+            return ResourceHashes.withHash(uri,
+                ResourceHashes.recorded(uri.getPath()).orElse(null));
         }
 
         /*
@@ -0,0 +1,447 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.jgrapes.core.Components;
+import org.jgrapes.core.Components.Timer;
+import org.jgrapes.webconsole.base.Conlet.RenderMode;
+import org.jgrapes.webconsole.base.ConsoleWeblet.SendDeferredCommands;
+import org.jgrapes.webconsole.base.events.CloseModalDialog;
+import org.jgrapes.webconsole.base.events.ConsoleCommand;
+import org.jgrapes.webconsole.base.events.DeleteConlet;
+import org.jgrapes.webconsole.base.events.NotifyConletView;
+import org.jgrapes.webconsole.base.events.OpenModalDialog;
+import org.jgrapes.webconsole.base.events.RenderConlet;
+
+/**
+ * Defers the sending of {@link RenderConlet} commands whose content
+ * is not available yet, so that a slow rendering doesn't delay the
+ * commands for other conlets. Commands for the same conlet
+ * ({@link RenderConlet}, {@link NotifyConletView}, {@link DeleteConlet},
+ * {@link OpenModalDialog} and {@link CloseModalDialog}) that are sent
+ * while a rendering is pending are deferred as well, in order to
+ * preserve their order.
+ *
+ * If the content is provided as {@link CompletableFuture}, its
+ * completion is awaited without blocking a thread. Else, a thread
+ * from the {@link Components#defaultExecutorService()} waits for
+ * the content. When the content becomes available, a
+ * {@link SendDeferredCommands} event is fired on the connection's
+ * response pipeline. If the content doesn't become available within
+ * the configured timeout, the command is sent with a placeholder as
+ * content instead. The content is still awaited and sent with a
+ * follow-up {@link RenderConlet} command when it becomes available,
+ * unless a newer {@link RenderConlet} command for the conlet and the
+ * same render modes or a {@link DeleteConlet} command has been sent
+ * in the meantime. Pending waits are cancelled when the connection
+ * is closed (see {@link #close()}).
+ *
+ * When the console layout is restored by rendering the conlets
+ * concurrently, the commands for the conlets can additionally be
+ * sent in the order of the layout (see {@link #restore(List, boolean)}).
+ */
+@SuppressWarnings("PMD.AvoidSynchronizedAtMethodLevel")
+/* default */ final class DeferredCommands {
+
+    private final ConsoleConnection connection;
+    private Duration timeout = Duration.ZERO;
+    private String placeholder = "";
+    @SuppressWarnings("PMD.UseConcurrentHashMap")
+    private final Map<String, Deque<ConsoleCommand>> deferred
+        = new HashMap<>();
+    private final Map<RenderConlet, Wait> awaiting = new IdentityHashMap<>();
+    private final Map<RenderConlet, RenderConlet> followUps
+        = new IdentityHashMap<>();
+    private final Deque<String> expected = new ArrayDeque<>();
+    @SuppressWarnings("PMD.UseConcurrentHashMap")
+    private final Map<String, Integer> completed = new HashMap<>();
+    private long restoreStarted;
+    private boolean closed;
+
+    /**
+     * Instantiates a new instance for the given connection.
+     *
+     * @param connection the connection
+     */
+    /* default */ DeferredCommands(ConsoleConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Sets the timeout and the placeholder.
+     *
+     * @param timeout the timeout, zero for no timeout
+     * @param placeholder the placeholder
+     */
+    /* default */ synchronized void configure(Duration timeout,
+            String placeholder) {
+        this.timeout = timeout;
+        this.placeholder = placeholder;
+    }
+
+    /**
+     * Invoked before the rendering of the conlets of a restored 
+     * console layout is requested. Starts measuring the time until
+     * the first preview is sent (see 
+     * {@link TrafficMetrics#recordFirstPreview(long)}).
+     * 
+     * If `ordered` is `true`, the commands for a conlet are deferred
+     * until the renderings requested for all conlets that precede it
+     * in the given list have been completed (see {@link #completed}).
+     * A conlet id may occur several times in the list, once for each
+     * rendering requested.
+     *
+     * @param conletIds the conlet ids in the order of the requests
+     * @param ordered whether to send the commands in the given order
+     */
+    /* default */ synchronized void restore(List<String> conletIds,
+            boolean ordered) {
+        restoreStarted = System.nanoTime();
+        if (ordered) {
+            expected.addAll(conletIds);
+        }
+    }
+
+    /**
+     * Defers the command if it is a {@link RenderConlet} command whose
+     * content is not available yet or if it is a command for a conlet
+     * for which commands are already deferred.
+     *
+     * @param command the command
+     * @return true, if the command has been deferred
+     */
+    /* default */ synchronized boolean defer(ConsoleCommand command) {
+        String conletId = conletId(command);
+        if (conletId == null || closed) {
+            return false;
+        }
+        Deque<ConsoleCommand> queue = deferred.get(conletId);
+        if (queue != null) {
+            queue.add(command);
+            return true;
+        }
+        boolean blocked = isBlocked(conletId);
+        if (!blocked && !(command instanceof RenderConlet render
+            && !render.isContentAvailable())) {
+            sending(command);
+            return false;
+        }
+        queue = new ArrayDeque<>();
+        queue.add(command);
+        deferred.put(conletId, queue);
+        if (!blocked) {
+            await((RenderConlet) command);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the commands that can be sent after the content of
+     * the given command has become available or the timeout
+     * has occurred. If the command has already been sent with
+     * the placeholder, the result is the follow-up command with
+     * the actual content (if still applicable).
+     *
+     * @param render the command whose content has been awaited
+     * @param timedOut whether the timeout has occurred
+     * @return the commands
+     */
+    /* default */ synchronized List<ConsoleCommand>
+            release(RenderConlet render, boolean timedOut) {
+        if (!timedOut && followUps.remove(render) != null) {
+            return followUp(render);
+        }
+        Deque<ConsoleCommand> queue = deferred.get(render.conletId());
+        if (queue == null || queue.peek() != render) {
+            return Collections.emptyList();
+        }
+        if (timedOut) {
+            RenderConlet substitute = withPlaceholder(render);
+            queue.poll();
+            queue.addFirst(substitute);
+            followUps.put(render, substitute);
+        }
+        List<ConsoleCommand> result = new ArrayList<>();
+        if (drain(render.conletId(), result)) {
+            advance(result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the commands that can be sent after a rendering 
+     * requested for the restored console layout has been completed.
+     *
+     * @param conletId the conlet id
+     * @return the commands
+     */
+    /* default */ synchronized List<ConsoleCommand>
+            completed(String conletId) {
+        if (expected.isEmpty()) {
+            return Collections.emptyList();
+        }
+        completed.merge(conletId, 1, Integer::sum);
+        List<ConsoleCommand> result = new ArrayList<>();
+        advance(result);
+        return result;
+    }
+
+    private boolean isBlocked(String conletId) {
+        return !expected.isEmpty() && !expected.peek().equals(conletId)
+            && expected.contains(conletId);
+    }
+
+    /**
+     * Moves the deferred commands for the conlet to the result until
+     * a {@link RenderConlet} command with unavailable content is
+     * encountered.
+     *
+     * @param conletId the conlet id
+     * @param result the result
+     * @return true, if all commands have been moved
+     */
+    private boolean drain(String conletId, List<ConsoleCommand> result) {
+        if (isBlocked(conletId)) {
+            return false;
+        }
+        Deque<ConsoleCommand> queue = deferred.get(conletId);
+        if (queue == null) {
+            return true;
+        }
+        while (!queue.isEmpty()) {
+            if (queue.peek() instanceof RenderConlet next
+                && !next.isContentAvailable()) {
+                await(next);
+                return false;
+            }
+            sending(queue.peek());
+            result.add(queue.poll());
+        }
+        deferred.remove(conletId);
+        return true;
+    }
+
+    /**
+     * Removes the completed renderings from the head of the expected
+     * renderings and moves the commands that may now be sent to
+     * the result.
+     *
+     * @param result the result
+     */
+    private void advance(List<ConsoleCommand> result) {
+        while (!expected.isEmpty()) {
+            String head = expected.peek();
+            if (!drain(head, result)
+                || completed.getOrDefault(head, 0) == 0) {
+                return;
+            }
+            completed.merge(head, -1, Integer::sum);
+            expected.poll();
+        }
+        completed.clear();
+    }
+
+    /**
+     * Returns the follow-up command for a command that has been
+     * sent with the placeholder. The follow-up is dropped if
+     * the content couldn't be obtained or if a newer 
+     * {@link RenderConlet} command with the same render modes 
+     * is pending.
+     *
+     * @param render the command
+     * @return the commands
+     */
+    private List<ConsoleCommand> followUp(RenderConlet render) {
+        if (render.content().state() != Future.State.SUCCESS) {
+            return Collections.emptyList();
+        }
+        Deque<ConsoleCommand> queue = deferred.get(render.conletId());
+        if (queue == null) {
+            return List.of(render);
+        }
+        if (queue.stream().noneMatch(cmd -> supersedes(cmd, render))) {
+            queue.add(render);
+        }
+        return Collections.emptyList();
+    }
+
+    private static boolean supersedes(ConsoleCommand command,
+            RenderConlet render) {
+        if (command instanceof DeleteConlet delete) {
+            return delete.conletId().equals(render.conletId());
+        }
+        return command instanceof RenderConlet other
+            && other.conletId().equals(render.conletId())
+            && other.renderAs().equals(render.renderAs());
+    }
+
+    private void sending(ConsoleCommand command) {
+        if (!followUps.isEmpty()) {
+            followUps.entrySet().removeIf(e -> e.getValue() != command
+                && supersedes(command, e.getKey()));
+        }
+        if (restoreStarted != 0 && command instanceof RenderConlet render
+            && render.renderAs().contains(RenderMode.Preview)) {
+            connection.metrics().recordFirstPreview(
+                (System.nanoTime() - restoreStarted) / 1_000_000);
+            restoreStarted = 0;
+        }
+    }
+
+    private RenderConlet withPlaceholder(RenderConlet render) {
+        return new RenderConlet(render.conletType(), render.conletId(),
+            CompletableFuture.completedFuture(placeholder))
+                .setRenderAs(render.renderAs())
+                .setSupportedModes(render.supportedRenderModes());
+    }
+
+    /**
+     * Discards the deferred commands and the state of a pending
+     * restore and cancels the pending waits. Invoked when the
+     * connection is closed.
+     */
+    /* default */ synchronized void close() {
+        closed = true;
+        deferred.clear();
+        expected.clear();
+        completed.clear();
+        followUps.clear();
+        for (Wait wait : awaiting.values()) {
+            wait.cancel();
+        }
+        awaiting.clear();
+    }
+
+    private void await(RenderConlet render) {
+        if (closed || awaiting.containsKey(render)) {
+            return;
+        }
+        Wait wait = new Wait();
+        awaiting.put(render, wait);
+        Future<String> content = render.content();
+        if (content instanceof CompletableFuture<String> future) {
+            if (!timeout.isZero()) {
+                wait.timer = Components.schedule(
+                    tmr -> available(render, true), timeout);
+            }
+            future.whenComplete((result, error) -> available(render, false));
+            return;
+        }
+        Duration awaitFor = timeout;
+        wait.waiter = Components.defaultExecutorService().submit(() -> {
+            try {
+                if (!awaitFor.isZero()) {
+                    try {
+                        content.get(awaitFor.toMillis(),
+                            TimeUnit.MILLISECONDS);
+                    } catch (TimeoutException e) {
+                        available(render, true);
+                    }
+                }
+                content.get();
+            } catch (InterruptedException e) {
+                // Cancelled by close
+                return;
+            } catch (ExecutionException e) { // NOPMD
+                // Reported when the command is serialized
+            }
+            available(render, false);
+        });
+    }
+
+    /**
+     * Invoked when the content of the command has become available
+     * or the timeout has occurred. Fires the 
+     * {@link SendDeferredCommands} event unless the wait has 
+     * already ended or has been cancelled. The wait continues
+     * after the timeout, in order to send the actual content
+     * when it becomes available.
+     *
+     * @param render the command
+     * @param timedOut whether the timeout has occurred
+     */
+    private synchronized void available(RenderConlet render,
+            boolean timedOut) {
+        Wait wait = awaiting.get(render);
+        if (wait == null || timedOut && wait.timedOut) {
+            return;
+        }
+        if (timedOut) {
+            wait.timedOut = true;
+        } else {
+            awaiting.remove(render);
+            if (wait.timer != null) {
+                wait.timer.cancel();
+            }
+        }
+        connection.responsePipeline().fire(
+            new SendDeferredCommands(render, timedOut), connection);
+    }
+
+    private static String conletId(ConsoleCommand command) {
+        if (command instanceof RenderConlet render) {
+            return render.conletId();
+        }
+        if (command instanceof NotifyConletView notification) {
+            return notification.conletId();
+        }
+        if (command instanceof DeleteConlet delete) {
+            return delete.conletId();
+        }
+        if (command instanceof OpenModalDialog open) {
+            return open.conletId();
+        }
+        if (command instanceof CloseModalDialog close) {
+            return close.conletId();
+        }
+        return null;
+    }
+
+    /**
+     * A pending wait for the content of a command.
+     */
+    private static final class Wait {
+        private Timer timer;
+        private Future<?> waiter;
+        private boolean timedOut;
+
+        private void cancel() {
+            if (timer != null) {
+                timer.cancel();
+            }
+            if (waiter != null) {
+                waiter.cancel(true);
+            }
+        }
+    }
+}
@@ -33,14 +33,13 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import java.io.IOException;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -49,17 +48,29 @@ import java.util.stream.Stream;
 
 /**
  * A class that serializes/deserializes as a JSON RPC.
+ *
+ * The types of the parameters of the methods can be registered
+ * with {@link #setParamTypes(Class, Map)} or 
+ * {@link #addParamTypes(Class, String, List)}. The types are 
+ * resolved when they are registered. During deserialization, the
+ * parameters are bound to the registered types directly, using
+ * the deserializers looked up when a method is first encountered.
+ * Parameters without a registered type are deserialized as
+ * untyped values (maps, lists, strings, numbers...).
  */
 @JsonDeserialize(using = JsonRpc.Deserializer.class)
 @JsonSerialize(using = JsonRpc.Serializer.class)
 public class JsonRpc {
 
     private static final String JSONRPC_VERSION = "2.0";
+    private static final Object[] NO_PARAMS = new Object[0];
+    private static final JavaType[] NO_TYPES = new JavaType[0];
     private static Map<Class<? extends JsonRpc>,
-            Map<String, List<Type>>> paramTypes = new ConcurrentHashMap<>();
+            Map<String, JavaType[]>> paramTypes = new ConcurrentHashMap<>();
     private JsonNode id;
     private String method;
-    private List<Object> params = new ArrayList<>();
+    private Object[] params = NO_PARAMS;
+    private int paramCount;
 
     /**
      * Instantiates a new json rpc.
@@ -86,7 +97,9 @@ public class JsonRpc {
      */
     public static void setParamTypes(Class<? extends JsonRpc> clazz,
             Map<String, List<Type>> types) {
-        paramTypes.put(clazz, new HashMap<>(types));
+        Map<String, JavaType[]> resolved = new ConcurrentHashMap<>();
+        types.forEach((method, list) -> resolved.put(method, resolve(list)));
+        paramTypes.put(clazz, resolved);
     }
 
     /**
@@ -99,8 +112,23 @@ public class JsonRpc {
      */
     public static void addParamTypes(Class<? extends JsonRpc> clazz,
             String method, List<Type> types) {
-        paramTypes.computeIfAbsent(clazz, k -> new HashMap<>())
-            .put(method, types);
+        paramTypes.computeIfAbsent(clazz, k -> new ConcurrentHashMap<>())
+            .put(method, resolve(types));
+    }
+
+    private static JavaType[] resolve(List<Type> types) {
+        TypeFactory factory = TypeFactory.defaultInstance();
+        return types.stream().map(factory::constructType)
+            .toArray(JavaType[]::new);
+    }
+
+    private static JavaType[] paramTypes(Class<? extends JsonRpc> clazz,
+            String method) {
+        if (method == null) {
+            return NO_TYPES;
+        }
+        return Optional.ofNullable(paramTypes.get(clazz))
+            .map(m -> m.get(method)).orElse(NO_TYPES);
     }
 
     /**
@@ -146,12 +174,26 @@ public class JsonRpc {
     }
 
     /**
-     * The parameters.
+     * The parameters. The array is not copied, it must not
+     * be modified.
      * 
      * @return the params
      */
+    @SuppressWarnings("PMD.MethodReturnsInternalArray")
     public Object[] params() {
-        return params.toArray();
+        if (paramCount < params.length) {
+            params = Arrays.copyOf(params, paramCount);
+        }
+        return params;
+    }
+
+    /**
+     * Returns the number of parameters.
+     *
+     * @return the number of parameters
+     */
+    public int paramCount() {
+        return paramCount;
     }
 
     /**
@@ -161,7 +203,8 @@ public class JsonRpc {
      * @return the json rpc
      */
     public JsonRpc setParams(Object... params) {
-        this.params = new ArrayList<>(Arrays.asList(params));
+        this.params = Arrays.copyOf(params, params.length);
+        paramCount = params.length;
         return this;
     }
 
@@ -172,7 +215,10 @@ public class JsonRpc {
      * @return the json rpc
      */
     public JsonRpc addParam(Object param) {
-        params.add(param);
+        if (paramCount == params.length) {
+            params = Arrays.copyOf(params, Math.max(4, paramCount * 2));
+        }
+        params[paramCount++] = param;
         return this;
     }
 
@@ -183,7 +229,7 @@ public class JsonRpc {
      * @return the string
      */
     public String asString(int index) {
-        return params.get(index).toString();
+        return params[index].toString();
     }
 
     /**
@@ -195,7 +241,21 @@ public class JsonRpc {
      */
     @SuppressWarnings({ "unchecked", "PMD.AvoidDuplicateLiterals" })
     public <T> T param(int index) {
-        return (T) params.get(index);
+        return (T) params[index];
+    }
+
+    /**
+     * Returns the parameter's value as the requested type or
+     * the default value if there is no parameter with the given index.
+     *
+     * @param <T> the generic type
+     * @param index the index
+     * @param defaultValue the default value
+     * @return the value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T param(int index, T defaultValue) {
+        return index < paramCount ? (T) params[index] : defaultValue;
     }
 
     /**
@@ -208,7 +268,7 @@ public class JsonRpc {
      */
     @SuppressWarnings("unchecked")
     public <T> Stream<T> streamOf(Class<T> cls, int index) {
-        return Arrays.stream((T[]) params.get(index));
+        return Arrays.stream((T[]) params[index]);
     }
 
     /**
@@ -218,7 +278,8 @@ public class JsonRpc {
      */
     @Override
     public String toString() {
-        return "JsonRpc [method=" + method + ", params=" + params + "]";
+        return "JsonRpc [method=" + method + ", params="
+            + Arrays.toString(params()) + "]";
     }
 
     /**
@@ -260,7 +321,7 @@ public class JsonRpc {
             generator.writeFieldName("method");
             generator.writeString(obj.method);
             generator.writeFieldName("params");
-            ctx.defaultSerializeValue(obj.params, generator);
+            ctx.defaultSerializeValue(obj.params(), generator);
             generator.writeEndObject();
         }
     }
@@ -271,7 +332,25 @@ public class JsonRpc {
     public static class Deserializer extends JsonDeserializer<JsonRpc>
             implements ContextualDeserializer {
 
+        @SuppressWarnings("unchecked")
+        private static final Binding NO_BINDING
+            = new Binding(NO_TYPES, new JsonDeserializer[0]);
         private JavaType type;
+        private Constructor<? extends JsonRpc> constructor;
+        private final Map<String, Binding> bindings
+            = new ConcurrentHashMap<>();
+        private JsonDeserializer<Object> untyped;
+
+        /**
+         * The deserializers for the parameters of a method.
+         *
+         * @param types the types that the deserializers were
+         * looked up for
+         * @param deserializers the deserializers
+         */
+        private record Binding(JavaType[] types,
+                JsonDeserializer<Object>[] deserializers) {
+        }
 
         /**
          * Creates a new instance for calling
@@ -323,10 +402,13 @@ public class JsonRpc {
         public JsonRpc deserialize(JsonParser parser,
                 DeserializationContext ctx) throws IOException {
             JsonRpc jsonRpc;
-            @SuppressWarnings("unchecked")
-            var clazz = (Class<? extends JsonRpc>) type.getRawClass();
             try {
-                jsonRpc = clazz.getDeclaredConstructor().newInstance();
+                if (constructor == null) {
+                    @SuppressWarnings("unchecked")
+                    var clazz = (Class<? extends JsonRpc>) type.getRawClass();
+                    constructor = clazz.getDeclaredConstructor();
+                }
+                jsonRpc = constructor.newInstance();
             } catch (InstantiationException | IllegalAccessException
                     | IllegalArgumentException | InvocationTargetException
                     | NoSuchMethodException | SecurityException e) {
@@ -356,10 +438,11 @@ public class JsonRpc {
                 jsonRpc.id = ctx.readTree(parser);
                 break;
             case "method":
-                jsonRpc.method = ctx.readValue(parser, String.class);
+                jsonRpc.method = parser.getValueAsString();
                 break;
             case "params":
-                jsonRpc.params = handleParams(parser, ctx, jsonRpc);
+                jsonRpc.params = handleParams(parser, ctx, jsonRpc.method);
+                jsonRpc.paramCount = jsonRpc.params.length;
                 break;
             default:
                 ctx.readTree(parser);
@@ -367,28 +450,65 @@ public class JsonRpc {
             }
         }
 
-        private List<Object> handleParams(JsonParser parser,
-                DeserializationContext ctx, JsonRpc jsonRpc)
+        private Object[] handleParams(JsonParser parser,
+                DeserializationContext ctx, String method)
                 throws IOException {
-            List<Object> params = new ArrayList<>();
-            @SuppressWarnings("unchecked")
-            var clazz = (Class<? extends JsonRpc>) type.getRawClass();
-            var typeIter = Optional.ofNullable(paramTypes.get(clazz))
-                .map(m -> m.get(jsonRpc.method))
-                .map(List::iterator).orElse(Collections.emptyIterator());
+            var deserializers = binding(ctx, method).deserializers();
+            Object[] params = deserializers.length == 0 ? NO_PARAMS
+                : new Object[deserializers.length];
+            int count = 0;
 
             // Process array elements
-            while (true) {
-                if (parser.nextToken() == JsonToken.END_ARRAY) {
-                    break;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                var deserializer = count < deserializers.length
+                    ? deserializers[count]
+                    : untyped(ctx);
+                var item = parser.currentToken() == JsonToken.VALUE_NULL
+                    ? deserializer.getNullValue(ctx)
+                    : deserializer.deserialize(parser, ctx);
+                if (count == params.length) {
+                    params = Arrays.copyOf(params, Math.max(4, count * 2));
                 }
-                Type paramType = typeIter.hasNext() ? typeIter.next()
-                    : ctx.getTypeFactory().constructType(Object.class);
-                var item = ctx.readValue(parser,
-                    ctx.getTypeFactory().constructType(paramType));
-                params.add(item);
+                params[count++] = item;
+            }
+            return count == params.length ? params
+                : Arrays.copyOf(params, count);
+        }
+
+        /**
+         * Returns the deserializers for the parameters of the given
+         * method. The deserializers are looked up when the method is
+         * first encountered and again if the registered types change.
+         */
+        @SuppressWarnings("unchecked")
+        private Binding binding(DeserializationContext ctx, String method)
+                throws JsonMappingException {
+            var clazz = (Class<? extends JsonRpc>) type.getRawClass();
+            JavaType[] types = paramTypes(clazz, method);
+            if (types.length == 0) {
+                return NO_BINDING;
+            }
+            Binding binding = bindings.get(method);
+            if (binding != null && binding.types() == types) {
+                return binding;
+            }
+            JsonDeserializer<Object>[] deserializers
+                = new JsonDeserializer[types.length];
+            for (int i = 0; i < types.length; i++) {
+                deserializers[i] = ctx.findRootValueDeserializer(types[i]);
+            }
+            binding = new Binding(types, deserializers);
+            bindings.put(method, binding);
+            return binding;
+        }
+
+        private JsonDeserializer<Object> untyped(DeserializationContext ctx)
+                throws JsonMappingException {
+            if (untyped == null) {
+                untyped = ctx.findRootValueDeserializer(
+                    ctx.constructType(Object.class));
             }
-            return params;
+            return untyped;
         }
 
     }
@@ -0,0 +1,162 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Decodes {@link JsonRpc}s from character data that is fed to the
+ * decoder in arbitrary chunks. In contrast to using a blocking
+ * parser with a {@link java.io.Reader}, the decoder does not need a
+ * thread of its own. Decoding is done using Jackson's non-blocking
+ * parser, tokens are collected until a complete JSON value is
+ * available, which is then converted to the requested type.
+ *
+ * The decoder is not thread-safe.
+ *
+ * @param <T> the type of the decoded values
+ */
+public class JsonRpcDecoder<T extends JsonRpc> {
+
+    private final ObjectMapper mapper;
+    private final Class<T> type;
+    private final CharsetEncoder encoder
+        = StandardCharsets.UTF_8.newEncoder();
+    private JsonParser parser;
+    private TokenBuffer collected;
+    private int depth;
+    private char pendingChar;
+    private boolean hasPendingChar;
+
+    /**
+     * Instantiates a new decoder.
+     *
+     * @param mapper the mapper used to convert the JSON to objects
+     * @param type the type of the objects
+     */
+    public JsonRpcDecoder(ObjectMapper mapper, Class<T> type) {
+        this.mapper = mapper;
+        this.type = type;
+    }
+
+    /**
+     * Feed the given data to the decoder. For each completely
+     * decoded value, the consumer is invoked.
+     *
+     * @param data the data
+     * @param consumer the consumer for the decoded values
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void feed(CharBuffer data, Consumer<T> consumer)
+            throws IOException {
+        if (parser == null) {
+            // Delayed initialization, keeps unused decoders small.
+            parser = mapper.getFactory().createNonBlockingByteArrayParser();
+        }
+        byte[] bytes = encode(data);
+        ((ByteArrayFeeder) parser.getNonBlockingInputFeeder())
+            .feedInput(bytes, 0, bytes.length);
+        decode(consumer);
+    }
+
+    /**
+     * Signals the end of input. Decodes any value completed by
+     * the end of input (not possible for valid JSON RPCs) and
+     * releases all resources.
+     *
+     * @param consumer the consumer for the decoded values
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void close(Consumer<T> consumer) throws IOException {
+        if (parser == null) {
+            return;
+        }
+        try {
+            ((ByteArrayFeeder) parser.getNonBlockingInputFeeder())
+                .endOfInput();
+            decode(consumer);
+        } finally {
+            parser.close();
+            parser = null;
+            collected = null;
+        }
+    }
+
+    @SuppressWarnings("PMD.AvoidReassigningParameters")
+    private byte[] encode(CharBuffer data) throws CharacterCodingException {
+        if (hasPendingChar) {
+            // Complete surrogate pair from previous invocation
+            data = CharBuffer.allocate(data.remaining() + 1)
+                .put(pendingChar).put(data).flip();
+            hasPendingChar = false;
+        }
+        ByteBuffer out = ByteBuffer.allocate(
+            (int) (data.remaining() * encoder.maxBytesPerChar()));
+        CoderResult result = encoder.encode(data, out, false);
+        if (result.isError()) {
+            result.throwException();
+        }
+        if (data.hasRemaining()) {
+            // Only possible for a high surrogate at the end
+            pendingChar = data.get();
+            hasPendingChar = true;
+        }
+        byte[] bytes = new byte[out.position()];
+        out.flip().get(bytes);
+        return bytes;
+    }
+
+    private void decode(Consumer<T> consumer) throws IOException {
+        while (true) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.NOT_AVAILABLE) {
+                return;
+            }
+            if (collected == null) {
+                collected = new TokenBuffer(parser);
+            }
+            collected.copyCurrentEvent(parser);
+            if (token.isStructStart()) {
+                depth += 1;
+            } else if (token.isStructEnd()) {
+                depth -= 1;
+            }
+            if (depth > 0) {
+                continue;
+            }
+            // Complete value available
+            try (JsonParser valueParser = collected.asParser()) {
+                collected = null;
+                consumer.accept(mapper.readValue(valueParser, type));
+            }
+        }
+    }
+}
@@ -25,23 +25,29 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.jgrapes.core.Channel;
 import org.jgrapes.core.Component;
 import org.jgrapes.core.Event;
 import org.jgrapes.core.annotation.Handler;
+import org.jgrapes.core.events.Stop;
 import org.jgrapes.http.Session;
-import org.jgrapes.io.IOSubchannel;
 import org.jgrapes.util.events.KeyValueStoreQuery;
 import org.jgrapes.util.events.KeyValueStoreUpdate;
 import org.jgrapes.webconsole.base.Conlet.RenderMode;
+import org.jgrapes.webconsole.base.ConsoleWeblet.SendDeferredCommands;
 import org.jgrapes.webconsole.base.events.ConsoleLayoutChanged;
 import org.jgrapes.webconsole.base.events.ConsolePrepared;
 import org.jgrapes.webconsole.base.events.LastConsoleLayout;
+import org.jgrapes.webconsole.base.events.RenderConlet;
 import org.jgrapes.webconsole.base.events.RenderConletRequest;
 
 /**
@@ -59,6 +65,23 @@ import org.jgrapes.webconsole.base.events.RenderConletRequest;
  * as retrieved from persistent storage to the web console and then generates
  * render events for all web console components contained in this layout.
  * 
+ * By default, the render events are fired on the connection's channel
+ * and are therefore handled one after the other. If a restore
+ * parallelism greater than zero is set (see
+ * {@link #setRestoreParallelism(int)}), each render event is fired
+ * on its own event pipeline, using a pool with the given number of
+ * threads. The conlets are then rendered concurrently, while the
+ * resulting commands are still sent to the browser in the order
+ * of the layout.
+ * 
+ * If lazy rendering is enabled (see {@link #setLazyRendering(boolean)}),
+ * no render events are fired when the layout is restored. Instead,
+ * the policy sends {@link RenderConlet} commands with placeholders
+ * (see {@link #setLazyPlaceholder(String)}) and the browser requests
+ * the rendering of a conlet when its placeholder becomes visible.
+ * The effort for restoring the layout then depends on the conlets
+ * shown rather than on the size of the layout.
+ * 
  * Each time the layout is changed in the web console, the web console sends 
  * the new layout data and this component updates the persistent storage
  * accordingly.
@@ -110,6 +133,12 @@ public class KVStoreBasedConsolePolicy extends Component {
         .addModule(new ParameterNamesModule()).addModule(new Jdk8Module())
         .addModule(new JavaTimeModule()).build();
 
+    private int restoreParallelism;
+    private boolean lazyRendering;
+    private String lazyPlaceholder
+        = "<div class=\"jgrapes-conlet-placeholder\"></div>";
+    private ExecutorService restoreExecutor;
+
     /**
      * Creates a new component with its channel set to
      * itself.
@@ -127,6 +156,107 @@ public class KVStoreBasedConsolePolicy extends Component {
         super(componentChannel);
     }
 
+    /**
+     * Sets the number of threads used to render the conlets of
+     * a restored layout concurrently. Defaults to 0, which causes
+     * the conlets to be rendered one after the other.
+     *
+     * @param parallelism the parallelism
+     * @return the KV store based console policy for easy chaining
+     */
+    public KVStoreBasedConsolePolicy setRestoreParallelism(int parallelism) {
+        restoreParallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Returns the number of threads used to render the conlets of
+     * a restored layout concurrently.
+     *
+     * @return the parallelism
+     */
+    public int restoreParallelism() {
+        return restoreParallelism;
+    }
+
+    /**
+     * Enables or disables the lazy rendering of the conlets of
+     * a restored layout. Defaults to `false`.
+     *
+     * @param lazyRendering whether to render lazily
+     * @return the KV store based console policy for easy chaining
+     */
+    public KVStoreBasedConsolePolicy setLazyRendering(boolean lazyRendering) {
+        this.lazyRendering = lazyRendering;
+        return this;
+    }
+
+    /**
+     * Returns whether the conlets of a restored layout are
+     * rendered lazily.
+     *
+     * @return the result
+     */
+    public boolean lazyRendering() {
+        return lazyRendering;
+    }
+
+    /**
+     * Sets the HTML that is sent as placeholder for a conlet
+     * when rendering lazily. The HTML is wrapped in an element 
+     * with the attribute `data-jgwc-render-when-visible` (see 
+     * {@link RenderConlet}). Defaults to an empty `div` with
+     * class `jgrapes-conlet-placeholder`.
+     *
+     * @param placeholder the placeholder
+     * @return the KV store based console policy for easy chaining
+     */
+    public KVStoreBasedConsolePolicy setLazyPlaceholder(String placeholder) {
+        this.lazyPlaceholder = placeholder;
+        return this;
+    }
+
+    /**
+     * Returns the HTML that is sent as placeholder for a conlet
+     * when rendering lazily.
+     *
+     * @return the placeholder
+     */
+    public String lazyPlaceholder() {
+        return lazyPlaceholder;
+    }
+
+    private synchronized Optional<ExecutorService> restoreExecutor() {
+        if (restoreParallelism <= 0) {
+            return Optional.empty();
+        }
+        if (restoreExecutor == null) {
+            restoreExecutor = Executors.newFixedThreadPool(
+                restoreParallelism, runnable -> {
+                    Thread thread = new Thread(runnable,
+                        KVStoreBasedConsolePolicy.class.getSimpleName()
+                            + "-restore");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        }
+        return Optional.of(restoreExecutor);
+    }
+
+    /**
+     * Shuts down the threads used to render the conlets of
+     * restored layouts.
+     *
+     * @param event the event
+     */
+    @Handler
+    public synchronized void onStop(Stop event) {
+        if (restoreExecutor != null) {
+            restoreExecutor.shutdownNow();
+            restoreExecutor = null;
+        }
+    }
+
     /**
      * Create browser session scoped storage and forward event to it.
      *
@@ -178,7 +308,7 @@ public class KVStoreBasedConsolePolicy extends Component {
         }
 
         public void onConsolePrepared(
-                ConsolePrepared event, IOSubchannel channel) {
+                ConsolePrepared event, ConsoleConnection channel) {
             KeyValueStoreQuery query = new KeyValueStoreQuery(
                 storagePath, channel);
             Event.onCompletion(query, e -> onQueryCompleted(e, channel,
@@ -188,7 +318,7 @@ public class KVStoreBasedConsolePolicy extends Component {
 
         @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
         public void onQueryCompleted(KeyValueStoreQuery query,
-                IOSubchannel channel, RenderSupport renderSupport) {
+                ConsoleConnection channel, RenderSupport renderSupport) {
             try {
                 String data = Optional.ofNullable(query.get())
                     .flatMap(m -> Optional.ofNullable(m.get(storagePath)))
@@ -221,20 +351,57 @@ public class KVStoreBasedConsolePolicy extends Component {
                 previewLayout, tabsLayout, xtraInfo));
 
             // Restore conlets
+            if (lazyRendering) {
+                sendPlaceholders(channel, tabsLayout, previewLayout);
+                return;
+            }
+            List<RenderConletRequest> requests = new ArrayList<>();
             for (String conletId : tabsLayout) {
-                fire(new RenderConletRequest(renderSupport, conletId,
-                    RenderMode.asSet(RenderMode.View)), channel);
+                requests.add(new RenderConletRequest(renderSupport, conletId,
+                    RenderMode.asSet(RenderMode.View)));
             }
             for (String conletId : previewLayout) {
-                fire(new RenderConletRequest(renderSupport, conletId,
+                requests.add(new RenderConletRequest(renderSupport, conletId,
                     RenderMode.asSet(RenderMode.Preview,
-                        RenderMode.Foreground)),
-                    channel);
+                        RenderMode.Foreground)));
+            }
+            Optional<ExecutorService> executor = restoreExecutor();
+            channel.deferredCommands().restore(requests.stream()
+                .map(RenderConletRequest::conletId).toList(),
+                executor.isPresent());
+            for (RenderConletRequest request : requests) {
+                if (executor.isEmpty()) {
+                    fire(request, channel);
+                    continue;
+                }
+                Event.onCompletion(request,
+                    e -> channel.responsePipeline().fire(
+                        new SendDeferredCommands(e.conletId()), channel));
+                newEventPipeline(executor.get()).fire(request, channel);
+            }
+        }
+
+        private void sendPlaceholders(ConsoleConnection channel,
+                List<String> tabsLayout, List<String> previewLayout) {
+            for (String conletId : tabsLayout) {
+                channel.respond(placeholder(conletId, RenderMode.View));
             }
+            for (String conletId : previewLayout) {
+                channel.respond(placeholder(conletId, RenderMode.Preview));
+            }
+        }
+
+        private RenderConlet placeholder(String conletId, RenderMode mode) {
+            return new RenderConlet(AbstractConlet.typeFromId(conletId),
+                conletId, CompletableFuture.completedFuture(
+                    "<div data-jgwc-render-when-visible=\"" + mode.name()
+                        + "\">" + lazyPlaceholder + "</div>"))
+                            .setRenderAs(mode)
+                            .setSupportedModes(RenderMode.asSet(mode));
         }
 
         public void onConsoleLayoutChanged(ConsoleLayoutChanged event,
-                IOSubchannel channel) throws IOException {
+                ConsoleConnection channel) throws IOException {
             persisted.put("previewLayout", event.previewLayout());
             persisted.put("tabsLayout", event.tabsLayout());
             persisted.put("xtraInfo", event.xtraInfo());
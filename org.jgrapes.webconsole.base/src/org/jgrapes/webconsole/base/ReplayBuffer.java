@@ -0,0 +1,147 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Keeps the most recent messages sent to a {@link ConsoleConnection}
+ * for replay after the WebSocket connection has been re-established.
+ *
+ * The commands sent are numbered implicitly, i.e. the browser
+ * counts the commands received and reports the count when it
+ * reconnects. Because the browser always receives complete
+ * messages, the count always matches the sequence number of the
+ * first command of a message sent by the server (or the number of
+ * commands sent).
+ *
+ * The buffer is not thread-safe. It is only used by the
+ * {@link CommandBatch}.
+ */
+/* default */ final class ReplayBuffer {
+
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private int limit;
+    private int size;
+    private long sent;
+
+    /**
+     * The commands sent in a single message.
+     *
+     * @param seq the sequence number of the first command
+     * @param count the number of commands
+     * @param json the comma separated JSON representations of
+     * the commands
+     */
+    private record Entry(long seq, int count, String json) {
+    }
+
+    /**
+     * Sets the maximum number of characters kept in the buffer.
+     * A limit of zero disables replay.
+     *
+     * @param limit the limit
+     */
+    /* default */ void setLimit(int limit) {
+        this.limit = limit;
+        trim();
+    }
+
+    /**
+     * Returns the number of commands sent so far.
+     *
+     * @return the number of commands
+     */
+    /* default */ long sent() {
+        return sent;
+    }
+
+    /**
+     * Records a message that has been sent.
+     *
+     * @param count the number of commands in the message
+     * @param json the comma separated JSON representations of
+     * the commands
+     */
+    /* default */ void add(int count, CharSequence json) {
+        if (limit > 0 && json.length() <= limit) {
+            entries.add(new Entry(sent, count, json.toString()));
+            size += json.length();
+            trim();
+        } else {
+            // Cannot be replayed, the previous entries are useless.
+            entries.clear();
+            size = 0;
+        }
+        sent += count;
+    }
+
+    private void trim() {
+        while (size > limit && !entries.isEmpty()) {
+            size -= entries.removeFirst().json().length();
+        }
+    }
+
+    /**
+     * Checks if all commands sent since the command with the
+     * given sequence number (inclusive) are available for replay.
+     *
+     * @param from the sequence number of the first command
+     * @return true, if successful
+     */
+    /* default */ boolean canReplay(long from) {
+        if (from == sent) {
+            return true;
+        }
+        return entries.stream().anyMatch(entry -> entry.seq() == from);
+    }
+
+    /**
+     * Writes the commands sent since the command with the given
+     * sequence number (inclusive) as a JSON array to the writer.
+     * Nothing is written if the browser has received all commands.
+     * Must only be called if {@link #canReplay(long)} returns `true`
+     * for the given sequence number.
+     *
+     * @param from the sequence number of the first command
+     * @param out the writer
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    /* default */ void replay(long from, Writer out) throws IOException {
+        if (from == sent) {
+            return;
+        }
+        Iterator<Entry> iter = entries.iterator();
+        Entry entry;
+        do {
+            entry = iter.next();
+        } while (entry.seq() < from);
+        out.write('[');
+        out.write(entry.json());
+        while (iter.hasNext()) {
+            out.write(',');
+            out.write(iter.next().json());
+        }
+        out.write(']');
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import org.jdrupes.httpcodec.types.MediaType;
+import org.jgrapes.webconsole.base.events.ResourceRequest;
+
+/**
+ * Returns content that is available in memory as result. The
+ * hash of the content is sent as entity tag. Requests with
+ * a matching `If-None-Match` header or with an `If-Modified-Since`
+ * header that is not before the content's last modification are
+ * answered with "304 Not Modified". Text is sent compressed if the
+ * browser accepts it.
+ */
+public class ResourceByContent extends ResourceResult {
+
+    private final Content content;
+    private final int maxAge;
+
+    /**
+     * Instantiates a result that is provided by the given content.
+     *
+     * @param request the request
+     * @param content the content
+     * @param maxAge the max age
+     */
+    public ResourceByContent(ResourceRequest request, Content content,
+            int maxAge) {
+        super(request);
+        this.content = content;
+        this.maxAge = maxAge;
+    }
+
+    @Override
+    public void process() throws IOException, InterruptedException {
+        ResourceCache.send(request().httpRequest(), request().httpChannel(),
+            "|content:" + content.entry.hash(), content.mediaType,
+            content.entry, maxAge);
+    }
+
+    /**
+     * Content that can be sent repeatedly. Creating an instance
+     * calculates the hash of the content, so instances should be
+     * reused.
+     */
+    public static final class Content {
+
+        private final ResourceCache.Entry entry;
+        private final MediaType mediaType;
+
+        /**
+         * Creates new content.
+         *
+         * @param data the data
+         * @param mediaType the media type
+         * @param lastModifiedAt the time of the last modification
+         * (is truncated to seconds)
+         */
+        @SuppressWarnings("PMD.ArrayIsStoredDirectly")
+        public Content(byte[] data, MediaType mediaType,
+                Instant lastModifiedAt) {
+            entry = new ResourceCache.Entry(null,
+                lastModifiedAt.truncatedTo(ChronoUnit.SECONDS).toEpochMilli(),
+                data, ResourceCache.hash(data));
+            this.mediaType = mediaType;
+        }
+
+        /**
+         * Returns the hash of the content.
+         *
+         * @return the hash
+         */
+        public String hash() {
+            return entry.hash();
+        }
+
+        /**
+         * Returns the time of the last modification.
+         *
+         * @return the instant
+         */
+        public Instant lastModifiedAt() {
+            return Instant.ofEpochMilli(entry.lastModified());
+        }
+    }
+}
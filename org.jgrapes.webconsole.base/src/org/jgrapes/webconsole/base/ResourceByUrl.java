@@ -27,7 +27,8 @@ import org.jgrapes.webconsole.base.events.ResourceRequest;
 /**
  * Returns a {@link URL} as result. The result will be processed by
  * checking if the resource needs to be sent and, if this is the case,
- * sending it.
+ * sending it. Text resources are sent with a compressed content
+ * encoding if the browser accepts it.
  */
 public class ResourceByUrl extends ResourceResult {
     private final URL resourceUrl;
@@ -51,9 +52,12 @@ public class ResourceByUrl extends ResourceResult {
             return;
         }
 
-        // Send resource
-        ResponseCreationSupport.sendStaticContent(request().httpRequest(),
-            request().httpChannel(), path -> resourceUrl, null);
+        // Send resource using the cache
+        if (!ResourceCache.send(request().httpRequest(),
+            request().httpChannel(), resourceUrl)) {
+            ResponseCreationSupport.sendResponse(request().httpRequest(),
+                request().httpChannel(), HttpStatus.NOT_FOUND);
+        }
     }
 
 }
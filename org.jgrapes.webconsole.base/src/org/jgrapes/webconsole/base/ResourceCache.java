@@ -0,0 +1,595 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.zip.GZIPOutputStream;
+import org.jdrupes.httpcodec.protocols.http.HttpConstants.HttpStatus;
+import org.jdrupes.httpcodec.protocols.http.HttpField;
+import org.jdrupes.httpcodec.protocols.http.HttpRequest;
+import org.jdrupes.httpcodec.protocols.http.HttpResponse;
+import org.jdrupes.httpcodec.types.Converters;
+import org.jdrupes.httpcodec.types.MediaType;
+import org.jgrapes.http.ResponseCreationSupport;
+import org.jgrapes.http.events.Request;
+import org.jgrapes.http.events.Response;
+import org.jgrapes.io.IOSubchannel;
+import org.jgrapes.io.events.Output;
+import org.jgrapes.io.util.ManagedBuffer;
+
+/**
+ * A cache for static resources that are obtained from the class path
+ * (or, more generally, by {@link URL}), shared by all components
+ * of the web console.
+ *
+ * When a resource is sent for the first time, its content is read
+ * and kept in memory together with its modification time and a hash
+ * of the content that is used as entity tag. Subsequent requests
+ * are answered from memory without accessing the resource again.
+ * Only resources with a "file" URL are checked for modifications,
+ * because this is cheap and supports development.
+ *
+ * Resources from bundles aren't checked for modifications either.
+ * Not all OSGi frameworks include the bundle revision in the URLs
+ * of a bundle's resources, so the entries of a bundle's resources
+ * are removed when the bundle is updated or uninstalled. This
+ * requires the web console bundle to be started. Entries can also
+ * be removed explicitly with {@link #invalidate(Predicate)}.
+ *
+ * Text resources are sent with a compressed content encoding if
+ * the browser accepts it. For a resource `name`, the variants
+ * `name.br` and `name.gz` are looked up next to the resource.
+ * These variants can be created when building the application.
+ * If no gzip variant is available, the resource is compressed
+ * when it is requested for the first time. (There is no brotli
+ * encoder in the JRE, so brotli encoded variants must be provided
+ * by the build.) The variants are kept in the cache as entries
+ * of their own, which record the hash of the content they have
+ * been derived from. A variant is therefore only used as long as
+ * it matches the current content of the resource.
+ *
+ * The total size of the cached content (including the encoded
+ * variants) is limited (see {@link #setMaxSize(long)}). If the
+ * limit is exceeded, the least recently used entries are evicted.
+ * Resources that are larger than a quarter of the limit are not
+ * cached.
+ *
+ * Resources requested with the hash of their current content
+ * (see {@link ConsoleWeblet#setUseHashedResourceUris(boolean)})
+ * are sent as immutable.
+ */
+@SuppressWarnings({ "PMD.AvoidSynchronizedAtMethodLevel",
+    "PMD.DataflowAnomalyAnalysis", "PMD.GodClass" })
+public final class ResourceCache {
+
+    /** The default maximum size of the cached content (32 MiB). */
+    public static final long DEFAULT_MAX_SIZE = 32L * 1024 * 1024;
+
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String ETAG = "ETag";
+    private static final String VARY = "Vary";
+    private static final String CACHE_CONTROL = "Cache-Control";
+    private static final String IMMUTABLE
+        = "public, max-age=31536000, immutable";
+    /** Passed as max age for content that never changes. */
+    /* default */ static final int IMMUTABLE_MAX_AGE = -1;
+    private static final String BROTLI = "br";
+    private static final String GZIP = "gzip";
+    private static final int MIN_SIZE = 1024;
+    private static final int DEFAULT_MAX_AGE = 600;
+    private static final Set<String> COMPRESSIBLE = Set.of(
+        "application/javascript", "application/json", "application/xml",
+        "image/svg+xml", "text/javascript");
+
+    /**
+     * A cached resource or an encoded variant of a resource. A variant
+     * without content records that the encoding is not available.
+     *
+     * @param resource the resource, `null` for generated content
+     * @param lastModified when the resource was last modified
+     * @param content the content, may be `null` for variants
+     * @param hash the hash of the content, for variants the hash of
+     * the content that they have been derived from
+     */
+    /* default */ record Entry(URL resource, long lastModified,
+            byte[] content, String hash) {
+    }
+
+    private static final Map<String, Entry> CACHE
+        = new LinkedHashMap<>(64, 0.75f, true);
+    private static final int MAX_RESOLVED = 1024;
+    private static final Map<String, URL> RESOLVED
+        = new ConcurrentHashMap<>();
+    private static long maxSize = DEFAULT_MAX_SIZE;
+    private static long cachedBytes;
+    private static volatile long generation;
+
+    static {
+        try {
+            Class.forName("org.osgi.framework.FrameworkUtil", false,
+                ResourceCache.class.getClassLoader());
+            BundleInvalidation.register();
+        } catch (ClassNotFoundException e) { // NOPMD
+            // Not running in an OSGi framework
+        }
+    }
+
+    private ResourceCache() {
+    }
+
+    /**
+     * Sets the maximum size of the cached content in bytes.
+     *
+     * @param maxSize the maximum size
+     */
+    public static synchronized void setMaxSize(long maxSize) {
+        ResourceCache.maxSize = maxSize;
+        trim();
+    }
+
+    /**
+     * Returns the maximum size of the cached content in bytes.
+     *
+     * @return the maximum size
+     */
+    public static synchronized long maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the size of the currently cached content in bytes.
+     *
+     * @return the size
+     */
+    public static synchronized long size() {
+        return cachedBytes;
+    }
+
+    /**
+     * Loads the given resources into the cache. Resources that
+     * cannot be read are ignored. This can be used to avoid the
+     * latency of loading frequently used resources on the first
+     * request.
+     *
+     * @param resources the resources
+     */
+    public static void prefill(URL... resources) {
+        for (URL resource : resources) {
+            try {
+                entry(resource);
+            } catch (IOException e) { // NOPMD
+                // Ignored, will be reported when requested
+            }
+        }
+    }
+
+    /**
+     * Removes all entries for resources that match the given
+     * predicate from the cache.
+     *
+     * @param filter the filter
+     */
+    public static synchronized void invalidate(Predicate<URL> filter) {
+        var iter = CACHE.values().iterator();
+        while (iter.hasNext()) {
+            Entry entry = iter.next();
+            if (entry.resource() != null && filter.test(entry.resource())) {
+                if (entry.content() != null) {
+                    cachedBytes -= entry.content().length;
+                }
+                iter.remove();
+            }
+        }
+        RESOLVED.values().removeIf(filter);
+        generation++;
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public static synchronized void invalidate() {
+        CACHE.clear();
+        cachedBytes = 0;
+        generation++;
+    }
+
+    /**
+     * Returns a number that changes whenever the content of a
+     * cached resource may have changed, i.e. when a modification
+     * has been detected or entries have been invalidated. Data
+     * derived from the content of resources (e.g. URIs with hashes)
+     * must be re-evaluated when the number changes.
+     *
+     * @return the generation
+     */
+    /* default */ static long generation() {
+        return generation;
+    }
+
+    /**
+     * Sends the resource as response to the given request.
+     * Returns `false` if the resource does not exist.
+     *
+     * @param request the request
+     * @param channel the channel
+     * @param resource the resource
+     * @return true, if the response has been sent
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static boolean send(HttpRequest request, IOSubchannel channel,
+            URL resource) throws IOException {
+        MediaType mediaType;
+        try {
+            mediaType = HttpResponse.contentType(resource.toURI());
+        } catch (URISyntaxException e) {
+            return false;
+        }
+        Entry entry;
+        try {
+            entry = entry(resource);
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+        record(request.requestUri().getPath(), resource);
+        boolean immutable = ResourceHashes.fromUri(request.requestUri())
+            .map(entry.hash()::equals).orElse(false);
+        send(request, channel, "|" + resource, mediaType, entry,
+            immutable ? IMMUTABLE_MAX_AGE : DEFAULT_MAX_AGE);
+        return true;
+    }
+
+    /**
+     * Sends the content of the given entry, which may not be
+     * in the cache.
+     *
+     * @param request the request
+     * @param channel the channel
+     * @param key the key used for caching encoded variants
+     * @param mediaType the media type
+     * @param entry the entry
+     * @param maxAge the max age or {@link #IMMUTABLE_MAX_AGE}
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    /* default */ static void send(HttpRequest request, IOSubchannel channel,
+            String key, MediaType mediaType, Entry entry, int maxAge)
+            throws IOException {
+        boolean compressible = isCompressible(mediaType);
+        HttpResponse response = request.response().get();
+        if (compressible) {
+            response.setField(new HttpField<>(VARY, ACCEPT_ENCODING,
+                Converters.STRING));
+        }
+        String etag = "W/\"" + entry.hash() + "\"";
+        response.setField(new HttpField<>(ETAG, etag, Converters.STRING));
+        if (entry.lastModified() > 0) {
+            response.setField(HttpField.LAST_MODIFIED,
+                Instant.ofEpochMilli(entry.lastModified()));
+        }
+        setCaching(response, maxAge);
+        if (isNotModified(request, entry, etag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED);
+            response.setHasPayload(false);
+            channel.respond(new Response(response));
+            return;
+        }
+        byte[] content = entry.content();
+        for (String candidate : compressible ? accepted(request)
+            : new String[0]) {
+            byte[] encoded = variant(key, entry, candidate);
+            if (encoded != null) {
+                content = encoded;
+                response.setField(new HttpField<>(CONTENT_ENCODING,
+                    candidate, Converters.STRING));
+                break;
+            }
+        }
+        response.setContentType(mediaType);
+        response.setStatus(HttpStatus.OK);
+        response.setHasPayload(true);
+        channel.respond(new Response(response));
+        channel.respond(Output.fromSource(
+            ManagedBuffer.wrap(ByteBuffer.wrap(content)), true));
+    }
+
+    /**
+     * Sends the resource as response to the given request. If the
+     * response has been sent, the event's result is set to `true`
+     * and the event is stopped.
+     *
+     * @param event the event
+     * @param channel the channel
+     * @param resource the resource, may be `null`
+     * @return true, if the response has been sent
+     */
+    public static boolean send(Request.In.Get event, IOSubchannel channel,
+            URL resource) {
+        try {
+            if (resource == null
+                || !send(event.httpRequest(), channel, resource)) {
+                return false;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        event.setResult(true);
+        event.stop();
+        return true;
+    }
+
+    /**
+     * Records the resource that has been sent in response to
+     * a request with the given path.
+     *
+     * @param path the path
+     * @param resource the resource
+     */
+    /* default */ static void record(String path, URL resource) {
+        if (RESOLVED.size() >= MAX_RESOLVED && !RESOLVED.containsKey(path)) {
+            // Protect against arbitrary paths filling the map
+            RESOLVED.clear();
+        }
+        RESOLVED.put(path, resource);
+    }
+
+    /**
+     * Returns the resource that has been sent in response to
+     * a request with the given path.
+     *
+     * @param path the path
+     * @return the resource
+     */
+    /* default */ static Optional<URL> resolved(String path) {
+        return Optional.ofNullable(RESOLVED.get(path));
+    }
+
+    /**
+     * Returns the cache entry for the given resource, loading the
+     * resource if necessary.
+     *
+     * @param resource the resource
+     * @return the entry
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    /* default */ static Entry entry(URL resource) throws IOException {
+        String key = "|" + resource;
+        Entry cached;
+        synchronized (ResourceCache.class) {
+            cached = CACHE.get(key);
+        }
+        if (cached != null && !isModified(resource, cached)) {
+            return cached;
+        }
+        URLConnection conn = resource.openConnection();
+        long lastModified = conn.getLastModified() / 1000 * 1000;
+        byte[] content;
+        try (InputStream input = conn.getInputStream()) {
+            content = input.readAllBytes();
+        }
+        Entry entry = new Entry(resource, lastModified, content,
+            hash(content));
+        put(key, entry);
+        if (cached != null && !cached.hash().equals(entry.hash())) {
+            synchronized (ResourceCache.class) {
+                generation++;
+            }
+        }
+        return entry;
+    }
+
+    private static boolean isModified(URL resource, Entry cached)
+            throws IOException {
+        if (!"file".equals(resource.getProtocol())) {
+            return false;
+        }
+        URLConnection conn = resource.openConnection();
+        long lastModified = conn.getLastModified() / 1000 * 1000;
+        conn.getInputStream().close();
+        return lastModified != cached.lastModified();
+    }
+
+    /**
+     * Returns the hash of the given content.
+     *
+     * @param content the content
+     * @return the hash
+     */
+    /* default */ static String hash(byte[] content) {
+        try {
+            byte[] digest
+                = MessageDigest.getInstance("SHA-256").digest(content);
+            return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Arrays.copyOf(digest, 12));
+        } catch (NoSuchAlgorithmException e) {
+            // Guaranteed to be available
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static synchronized void put(String key, Entry entry) {
+        long size = entry.content() == null ? 0 : entry.content().length;
+        if (size > maxSize / 4) {
+            return;
+        }
+        Entry replaced = CACHE.put(key, entry);
+        if (replaced != null && replaced.content() != null) {
+            cachedBytes -= replaced.content().length;
+        }
+        cachedBytes += size;
+        trim();
+    }
+
+    private static void trim() {
+        var iter = CACHE.values().iterator();
+        while (cachedBytes > maxSize && iter.hasNext()) {
+            Entry eldest = iter.next();
+            if (eldest.content() != null) {
+                cachedBytes -= eldest.content().length;
+            }
+            iter.remove();
+        }
+    }
+
+    private static void setCaching(HttpResponse response, int maxAge) {
+        if (maxAge == IMMUTABLE_MAX_AGE) {
+            response.setField(new HttpField<>(CACHE_CONTROL, IMMUTABLE,
+                Converters.STRING));
+            return;
+        }
+        ResponseCreationSupport.setMaxAge(response, maxAge);
+    }
+
+    private static boolean isNotModified(HttpRequest request, Entry entry,
+            String etag) {
+        Optional<String> ifNoneMatch
+            = request.findValue(IF_NONE_MATCH, Converters.STRING);
+        if (ifNoneMatch.isPresent()) {
+            return Arrays.stream(ifNoneMatch.get().split(","))
+                .map(String::trim)
+                .anyMatch(tag -> "*".equals(tag) || etag.equals(tag)
+                    || etag.substring(2).equals(tag));
+        }
+        if (entry.lastModified() <= 0) {
+            return false;
+        }
+        return request.findValue(HttpField.IF_MODIFIED_SINCE,
+            Converters.DATE_TIME)
+            .map(since -> !Instant.ofEpochMilli(entry.lastModified())
+                .isAfter(since))
+            .orElse(false);
+    }
+
+    private static boolean isCompressible(MediaType mediaType) {
+        return "text".equals(mediaType.topLevelType())
+            || COMPRESSIBLE.contains(mediaType.topLevelType() + "/"
+                + mediaType.subtype());
+    }
+
+    /**
+     * Returns the accepted encodings, in order of preference.
+     *
+     * @param request the request
+     * @return the encodings
+     */
+    private static String[] accepted(HttpRequest request) {
+        boolean brotli = false;
+        boolean gzip = false;
+        for (String item : request.findValue(ACCEPT_ENCODING,
+            Converters.STRING).orElse("").split(",")) {
+            String[] parts = item.split(";");
+            String coding = parts[0].trim();
+            if (parts.length > 1
+                && parts[1].trim().matches("q=0(\\.0*)?")) {
+                continue;
+            }
+            brotli |= BROTLI.equalsIgnoreCase(coding);
+            gzip |= GZIP.equalsIgnoreCase(coding);
+        }
+        if (brotli && gzip) {
+            return new String[] { BROTLI, GZIP };
+        }
+        if (brotli) {
+            return new String[] { BROTLI };
+        }
+        return gzip ? new String[] { GZIP } : new String[0];
+    }
+
+    /**
+     * Returns the content of the resource with the given encoding,
+     * or `null` if it is not available.
+     */
+    private static byte[] variant(String key, Entry entry,
+            String encoding) throws IOException {
+        String variantKey = encoding + key;
+        synchronized (ResourceCache.class) {
+            Entry cached = CACHE.get(variantKey);
+            if (cached != null && entry.hash().equals(cached.hash())) {
+                return cached.content();
+            }
+        }
+        byte[] content = entry.resource() == null ? null
+            : provided(entry.resource(), encoding);
+        if (content == null && GZIP.equals(encoding)) {
+            content = gzip(entry.content());
+        }
+        put(variantKey, new Entry(entry.resource(), entry.lastModified(),
+            content, entry.hash()));
+        return content;
+    }
+
+    /**
+     * Returns the variant provided by the build, if any.
+     */
+    @SuppressWarnings("deprecation")
+    private static byte[] provided(URL resource, String encoding)
+            throws IOException {
+        URL variant;
+        try {
+            variant = new URL(resource,
+                resource.getPath().substring(
+                    resource.getPath().lastIndexOf('/') + 1)
+                    + (BROTLI.equals(encoding) ? ".br" : ".gz"));
+        } catch (MalformedURLException e) {
+            return null;
+        }
+        try (InputStream input = variant.openStream()) {
+            return input.readAllBytes();
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Compresses the content. Returns `null` if the content is
+     * too small to be worth compressing.
+     */
+    private static byte[] gzip(byte[] raw) throws IOException {
+        if (raw.length < MIN_SIZE) {
+            return null;
+        }
+        ByteArrayOutputStream compressed
+            = new ByteArrayOutputStream(raw.length / 3);
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(raw);
+        }
+        return compressed.toByteArray();
+    }
+}
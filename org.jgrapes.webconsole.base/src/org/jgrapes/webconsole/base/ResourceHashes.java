@@ -0,0 +1,155 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.util.Optional;
+import org.jgrapes.webconsole.base.events.AddPageResources.ScriptResource;
+
+/**
+ * Maintains the content hashes of resources. The hashes are used
+ * to create URIs that change whenever the content of a resource
+ * changes. Resources requested with such a URI can be cached by the
+ * browser forever.
+ *
+ * The hash is added to the URI as query parameter `_h`. URIs of
+ * JavaScript resources obtained from the {@link RenderSupport} don't
+ * get a hash (see {@link #isHashable}), because they may be used to
+ * import modules. The URIs of classic scripts are given the hash
+ * when they are sent as {@link ScriptResource}s (see 
+ * {@link #addRecordedHash(ScriptResource)}). For resources that are
+ * resolved by the {@link ConsoleWeblet} itself, the hash is
+ * calculated when the URI is created. For resources provided by
+ * other components, the hash is known after the resource has been
+ * sent for the first time.
+ */
+/* default */ final class ResourceHashes {
+
+    /** The name of the query parameter. */
+    /* default */ static final String HASH_PARAM = "_h";
+
+    private ResourceHashes() {
+    }
+
+    /**
+     * Returns the hash of the given resource or `null` if the
+     * resource cannot be accessed. The hash is obtained from the
+     * {@link ResourceCache}.
+     *
+     * @param resource the resource, may be `null`
+     * @return the hash
+     */
+    /* default */ static String hash(URL resource) {
+        if (resource == null) {
+            return null;
+        }
+        try {
+            return ResourceCache.entry(resource).hash();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the hash of the resource that has been sent in
+     * response to a request with the given path.
+     *
+     * @param path the path
+     * @return the hash
+     */
+    /* default */ static Optional<String> recorded(String path) {
+        return ResourceCache.resolved(path).map(ResourceHashes::hash);
+    }
+
+    /**
+     * Checks if a hash may be added to the URI of the resource with
+     * the given path when the type of the resource is unknown. This
+     * is not the case for JavaScript resources. These may be ES
+     * modules, which are also imported by other modules using
+     * relative URIs without the hash. As the browser identifies
+     * modules by their URI, it would load and evaluate such a module
+     * twice, once for each URI.
+     *
+     * @param path the path
+     * @return true, if successful
+     */
+    /* default */ static boolean isHashable(String path) {
+        return path != null && !path.endsWith(".js")
+            && !path.endsWith(".mjs");
+    }
+
+    /**
+     * Adds the recorded hash (see {@link #recorded(String)}) to the
+     * URI of the given script resource if it is a local classic 
+     * script, i.e. not a module. Classic scripts are only loaded
+     * by the URI used in the script resource.
+     *
+     * @param script the script resource
+     */
+    /* default */ static void addRecordedHash(ScriptResource script) {
+        URI uri = script.scriptUri();
+        if (uri == null || uri.isAbsolute() || uri.getRawAuthority() != null
+            || uri.getPath() == null || fromUri(uri).isPresent()
+            || script.getScriptType() != null
+                && !"text/javascript".equals(script.getScriptType())) {
+            return;
+        }
+        recorded(uri.getPath())
+            .ifPresent(hash -> script.setScriptUri(withHash(uri, hash)));
+    }
+
+    /**
+     * Adds the hash to the given URI.
+     *
+     * @param uri the uri
+     * @param hash the hash, may be `null`
+     * @return the URI with the hash or the unmodified URI if
+     * the hash is `null`
+     */
+    /* default */ static URI withHash(URI uri, String hash) {
+        if (hash == null) {
+            return uri;
+        }
+        String param = HASH_PARAM + "=" + hash;
+        return URI.create(uri.toString() + (uri.getRawQuery() == null
+            ? "?" + param
+            : "&" + param));
+    }
+
+    /**
+     * Returns the hash from the query of the given URI.
+     *
+     * @param uri the uri
+     * @return the hash
+     */
+    /* default */ static Optional<String> fromUri(URI uri) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return Optional.empty();
+        }
+        for (String param : query.split("&")) {
+            if (param.startsWith(HASH_PARAM + "=")) {
+                return Optional.of(param.substring(HASH_PARAM.length() + 1));
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.jgrapes.webconsole.base.events.AddConletType;
+import org.jgrapes.webconsole.base.events.AddPageResources;
+import org.jgrapes.webconsole.base.events.AddPageResources.ScriptResource;
+import org.jgrapes.webconsole.base.events.ConsoleCommand;
+import org.jgrapes.webconsole.base.events.SimpleConsoleCommand;
+
+/**
+ * Orders the script resources requested by the {@link AddPageResources}
+ * and {@link AddConletType} commands of a console manifest according
+ * to their dependencies.
+ *
+ * The browser resolves the dependencies of script resources by
+ * waiting for the scripts that provide the required features to be
+ * loaded before starting to load a script. Dependency chains are
+ * therefore loaded sequentially. With the ordered list of scripts,
+ * the browser can load all scripts in parallel and only execute them
+ * in the given order.
+ */
+/* default */ final class ScriptLoadPlan {
+
+    private ScriptLoadPlan() {
+    }
+
+    /**
+     * Orders the given candidates in groups. The scripts in a group
+     * only require features that are provided by scripts in preceding
+     * groups or that are not provided by any of the given scripts
+     * (i.e. are pre-loaded by the console page). Candidates whose
+     * requirements cannot be met in this way are omitted. Candidates
+     * with the same URI are included only once.
+     *
+     * @param scripts all scripts
+     * @param candidate selects the scripts to be ordered
+     * @return the groups
+     */
+    /* default */ static List<List<ScriptResource>> groups(
+            List<ScriptResource> scripts, Predicate<ScriptResource> candidate) {
+        Set<String> external = scripts.stream()
+            .flatMap(script -> Arrays.stream(script.provides()))
+            .collect(Collectors.toSet());
+        Map<String, ScriptResource> remaining = new LinkedHashMap<>();
+        for (ScriptResource script : scripts) {
+            if (candidate.test(script)) {
+                remaining.putIfAbsent(script.scriptUri().toString(), script);
+            }
+        }
+        List<List<ScriptResource>> groups = new ArrayList<>();
+        Set<String> provided = new HashSet<>();
+        while (true) {
+            List<ScriptResource> group = remaining.values().stream()
+                .filter(script -> Arrays.stream(script.requires())
+                    .allMatch(feature -> provided.contains(feature)
+                        || !external.contains(feature)))
+                .toList();
+            if (group.isEmpty()) {
+                break;
+            }
+            for (ScriptResource script : group) {
+                remaining.remove(script.scriptUri().toString());
+                provided.addAll(Arrays.asList(script.provides()));
+            }
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * Returns all script resources requested by the commands.
+     *
+     * @param commands the commands
+     * @return the script resources
+     */
+    /* default */ static List<ScriptResource>
+            scripts(List<ConsoleCommand> commands) {
+        List<ScriptResource> scripts = new ArrayList<>();
+        for (ConsoleCommand command : commands) {
+            if (command instanceof AddPageResources apr) {
+                scripts.addAll(Arrays.asList(apr.scriptResources()));
+            } else if (command instanceof AddConletType act) {
+                scripts.addAll(Arrays.asList(act.scriptResources()));
+            }
+        }
+        return scripts;
+    }
+
+    /**
+     * Creates the command that causes the browser to load the
+     * scripts requested by the given commands in dependency order.
+     * Only scripts that are loaded from a URI and are executed by
+     * the browser (classic scripts and modules) are included.
+     *
+     * @param commands the commands
+     * @return the command
+     */
+    /* default */ static Optional<ConsoleCommand>
+            command(List<ConsoleCommand> commands) {
+        List<ScriptResource> ordered = groups(scripts(commands),
+            script -> script.scriptUri() != null
+                && script.scriptSource() == null
+                && (script.getScriptType() == null
+                    || "text/javascript".equals(script.getScriptType())
+                    || "module".equals(script.getScriptType())))
+            .stream().flatMap(List::stream).toList();
+        if (ordered.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new SimpleConsoleCommand("loadScripts",
+            (Object) ordered.toArray(new ScriptResource[0])));
+    }
+}
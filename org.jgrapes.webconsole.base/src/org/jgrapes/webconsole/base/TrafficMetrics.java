@@ -0,0 +1,373 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the messages exchanged with the browser. Instances are
+ * maintained for each {@link ConsoleConnection} and for each
+ * {@link WebConsole}. The values recorded for a connection are
+ * added to the values of its console.
+ *
+ * The distributions of values (see {@link Histogram}) are only
+ * maintained by instances without a parent, i.e. by the console.
+ * An instance with a parent only maintains the counters, because
+ * the histograms would considerably increase the memory required
+ * for a connection.
+ *
+ * The values are recorded using {@link LongAdder}s, i.e. recording
+ * doesn't require any locking. The sizes of messages are measured
+ * in characters, because this is what the console exchanges with
+ * the WebSocket layer.
+ */
+@SuppressWarnings({ "PMD.TooManyFields", "PMD.DataClass" })
+public final class TrafficMetrics {
+
+    private final TrafficMetrics parent;
+    private final LongAdder messagesIn = new LongAdder();
+    private final LongAdder charsIn = new LongAdder();
+    private final LongAdder messagesOut = new LongAdder();
+    private final LongAdder commandsOut = new LongAdder();
+    private final LongAdder charsOut = new LongAdder();
+    private final LongAdder serializationNanos = new LongAdder();
+    private final Map<String, LongAdder> methodCounts
+        = new ConcurrentHashMap<>();
+    private final Histogram inboundSizes;
+    private final Histogram outboundSizes;
+    private final Histogram serializationTimes;
+    private final Histogram queueDepths;
+    private final Histogram firstPreviewTimes;
+
+    /**
+     * Creates new metrics that add the recorded values to the
+     * given parent. If there is a parent, no histograms are
+     * maintained.
+     *
+     * @param parent the parent, may be `null`
+     */
+    public TrafficMetrics(TrafficMetrics parent) {
+        this.parent = parent;
+        if (parent == null) {
+            inboundSizes = new Histogram(24);
+            outboundSizes = new Histogram(24);
+            serializationTimes = new Histogram(24);
+            queueDepths = new Histogram(16);
+            firstPreviewTimes = new Histogram(20);
+        } else {
+            inboundSizes = null;
+            outboundSizes = null;
+            serializationTimes = null;
+            queueDepths = null;
+            firstPreviewTimes = null;
+        }
+    }
+
+    /**
+     * Creates new metrics without a parent.
+     */
+    public TrafficMetrics() {
+        this(null);
+    }
+
+    /**
+     * Records the receipt of data from the browser.
+     *
+     * @param chars the number of characters received
+     */
+    public void recordInput(int chars) {
+        charsIn.add(chars);
+        if (parent == null) {
+            inboundSizes.record(chars);
+        } else {
+            parent.recordInput(chars);
+        }
+    }
+
+    /**
+     * Records the receipt of a JSON RPC message. A counter is
+     * kept for each distinct method, so callers must map methods
+     * supplied by the browser to a bounded set of values
+     * (see {@link WcJsonRpc#knownMethod(String)}).
+     *
+     * @param method the method invoked
+     */
+    public void recordRequest(String method) {
+        messagesIn.increment();
+        methodCounts.computeIfAbsent(method, key -> new LongAdder())
+            .increment();
+        if (parent != null) {
+            parent.recordRequest(method);
+        }
+    }
+
+    /**
+     * Records the time spent for serializing a command.
+     *
+     * @param nanos the time in nano seconds
+     */
+    public void recordSerialization(long nanos) {
+        serializationNanos.add(nanos);
+        if (parent == null) {
+            serializationTimes.record(nanos / 1000);
+        } else {
+            parent.recordSerialization(nanos);
+        }
+    }
+
+    /**
+     * Records a message sent to the browser.
+     *
+     * @param commands the number of commands in the message
+     * @param chars the number of characters sent
+     */
+    public void recordOutput(int commands, int chars) {
+        messagesOut.increment();
+        commandsOut.add(commands);
+        charsOut.add(chars);
+        if (parent == null) {
+            outboundSizes.record(chars);
+        } else {
+            parent.recordOutput(commands, chars);
+        }
+    }
+
+    /**
+     * Records the depth of the outbound queue when a command
+     * is added. The value is only recorded in a histogram,
+     * so it is passed on to the parent if there is one.
+     *
+     * @param depth the depth
+     */
+    public void recordQueueDepth(int depth) {
+        if (parent == null) {
+            queueDepths.record(depth);
+        } else {
+            parent.recordQueueDepth(depth);
+        }
+    }
+
+    /**
+     * Records the time between the start of restoring the
+     * console layout and sending the first preview. The value
+     * is only recorded in a histogram, so it is passed on to
+     * the parent if there is one.
+     *
+     * @param millis the time in milli seconds
+     */
+    public void recordFirstPreview(long millis) {
+        if (parent == null) {
+            firstPreviewTimes.record(millis);
+        } else {
+            parent.recordFirstPreview(millis);
+        }
+    }
+
+    /**
+     * Returns the number of JSON RPC messages received.
+     *
+     * @return the value
+     */
+    public long messagesIn() {
+        return messagesIn.sum();
+    }
+
+    /**
+     * Returns the number of characters received.
+     *
+     * @return the value
+     */
+    public long charsIn() {
+        return charsIn.sum();
+    }
+
+    /**
+     * Returns the number of messages sent. A message may
+     * contain several commands.
+     *
+     * @return the value
+     */
+    public long messagesOut() {
+        return messagesOut.sum();
+    }
+
+    /**
+     * Returns the number of commands sent.
+     *
+     * @return the value
+     */
+    public long commandsOut() {
+        return commandsOut.sum();
+    }
+
+    /**
+     * Returns the number of characters sent.
+     *
+     * @return the value
+     */
+    public long charsOut() {
+        return charsOut.sum();
+    }
+
+    /**
+     * Returns the total time spent serializing commands
+     * in nano seconds.
+     *
+     * @return the value
+     */
+    public long serializationNanos() {
+        return serializationNanos.sum();
+    }
+
+    /**
+     * Returns the number of messages received by JSON RPC method.
+     *
+     * @return the counts
+     */
+    public SortedMap<String, Long> methodCounts() {
+        SortedMap<String, Long> result = new TreeMap<>();
+        methodCounts.forEach((method, count) -> result.put(method,
+            count.sum()));
+        return result;
+    }
+
+    /**
+     * Returns the histogram of the sizes of the data received
+     * in characters.
+     *
+     * @return the histogram or `null` if these metrics have
+     * a parent
+     */
+    public Histogram inboundSizes() {
+        return inboundSizes;
+    }
+
+    /**
+     * Returns the histogram of the sizes of the messages sent
+     * in characters.
+     *
+     * @return the histogram or `null` if these metrics have
+     * a parent
+     */
+    public Histogram outboundSizes() {
+        return outboundSizes;
+    }
+
+    /**
+     * Returns the histogram of the serialization times of the
+     * commands in micro seconds.
+     *
+     * @return the histogram or `null` if these metrics have
+     * a parent
+     */
+    public Histogram serializationTimes() {
+        return serializationTimes;
+    }
+
+    /**
+     * Returns the histogram of the outbound queue depths.
+     *
+     * @return the histogram or `null` if these metrics have
+     * a parent
+     */
+    public Histogram queueDepths() {
+        return queueDepths;
+    }
+
+    /**
+     * Returns the histogram of the times between the start of 
+     * restoring the console layout and sending the first preview
+     * in milli seconds.
+     *
+     * @return the histogram or `null` if these metrics have
+     * a parent
+     */
+    public Histogram firstPreviewTimes() {
+        return firstPreviewTimes;
+    }
+
+    /**
+     * A histogram with a fixed number of buckets. The upper
+     * (exclusive) bound of bucket `i` is 2^i, i.e. bucket 0
+     * counts the zero values, bucket 1 the ones, bucket 2 the
+     * values 2 and 3 and so on. The last bucket counts all values
+     * that exceed the upper bound of the bucket before it.
+     */
+    public static final class Histogram {
+
+        private final LongAdder[] buckets;
+
+        /**
+         * Instantiates a new histogram.
+         *
+         * @param size the number of buckets
+         */
+        @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+        public Histogram(int size) {
+            buckets = new LongAdder[size];
+            for (int i = 0; i < size; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Records the given value. Negative values are
+         * counted as zero.
+         *
+         * @param value the value
+         */
+        public void record(long value) {
+            int bucket
+                = value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value);
+            buckets[Math.min(bucket, buckets.length - 1)].increment();
+        }
+
+        /**
+         * Returns the upper (exclusive) bounds of the buckets.
+         * The bound of the last bucket is {@link Long#MAX_VALUE}.
+         *
+         * @return the bounds
+         */
+        public long[] bounds() {
+            long[] result = new long[buckets.length];
+            for (int i = 0; i < result.length - 1; i++) {
+                result[i] = 1L << i;
+            }
+            result[result.length - 1] = Long.MAX_VALUE;
+            return result;
+        }
+
+        /**
+         * Returns the counts of the buckets.
+         *
+         * @return the counts
+         */
+        public long[] counts() {
+            long[] result = new long[buckets.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = buckets[i].sum();
+            }
+            return result;
+        }
+    }
+}
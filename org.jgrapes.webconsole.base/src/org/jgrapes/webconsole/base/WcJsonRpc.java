@@ -20,8 +20,10 @@ package org.jgrapes.webconsole.base;
 
 import java.lang.reflect.Type;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * The RPCs for the web console.
@@ -33,6 +35,7 @@ public class WcJsonRpc extends JsonRpc {
     private static List<String> stringList;
     @SuppressWarnings("unused")
     private static Type stringListType;
+    private static final Set<String> METHODS;
 
     public record ConletInfo(String conletId, List<String> modes,
             Map<?, ?> opts) {
@@ -45,19 +48,36 @@ public class WcJsonRpc extends JsonRpc {
         } catch (NoSuchFieldException | SecurityException e) {
             // Cannot happen
         }
-        setParamTypes(WcJsonRpc.class,
-            Map.of(
-                "addConlet", List.of(String.class, String[].class, Map.class),
-                "conletsDeleted", List.of(ConletInfo[].class),
-                "consoleLayout",
-                List.of(String[].class, String[].class, Object.class),
-                "notifyConletModel",
-                List.of(String.class, String.class, Object[].class),
-                "prepareConsole", Collections.emptyList(),
-                "setLocale", List.of(String.class, Boolean.class),
-                "setTheme", List.of(String.class),
-                "renderConlet", List.of(String.class, String[].class),
-                "retrievedLocalData", List.of(String[][].class)));
+        Map<String, List<Type>> types = Map.of(
+            "addConlet", List.of(String.class, String[].class, Map.class),
+            "conletsDeleted", List.of(ConletInfo[].class),
+            "conletVisibility", List.of(String.class, Boolean.class),
+            "consoleLayout",
+            List.of(String[].class, String[].class, Object.class),
+            "notifyConletModel",
+            List.of(String.class, String.class, Object[].class),
+            "prepareConsole", Collections.emptyList(),
+            "setLocale", List.of(String.class, Boolean.class),
+            "setTheme", List.of(String.class),
+            "renderConlet", List.of(String.class, String[].class),
+            "retrievedLocalData", List.of(String[][].class));
+        setParamTypes(WcJsonRpc.class, types);
+        Set<String> methods = new HashSet<>(types.keySet());
+        methods.addAll(List.of("consoleReady", "disconnect", "keepAlive"));
+        METHODS = Collections.unmodifiableSet(methods);
+    }
+
+    /**
+     * Returns the given method if it is one of the methods sent
+     * by the web console, else "other". As the method is supplied
+     * by the browser, this should be used to bound the number of
+     * distinct keys when recording per method statistics.
+     *
+     * @param method the method
+     * @return the method or "other"
+     */
+    public static String knownMethod(String method) {
+        return method != null && METHODS.contains(method) ? method : "other";
     }
 
 }
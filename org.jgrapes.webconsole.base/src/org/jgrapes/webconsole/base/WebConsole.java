@@ -48,6 +48,7 @@ import org.jgrapes.webconsole.base.Conlet.RenderMode;
 import org.jgrapes.webconsole.base.WcJsonRpc.ConletInfo;
 import org.jgrapes.webconsole.base.events.AddConletRequest;
 import org.jgrapes.webconsole.base.events.ConletDeleted;
+import org.jgrapes.webconsole.base.events.ConletVisibilityChanged;
 import org.jgrapes.webconsole.base.events.ConsoleConfigured;
 import org.jgrapes.webconsole.base.events.ConsoleLayoutChanged;
 import org.jgrapes.webconsole.base.events.ConsoleReady;
@@ -68,6 +69,9 @@ public class WebConsole extends Component {
         = Logger.getLogger(WebConsole.class.getName());
 
     private ConsoleWeblet view;
+    private final TrafficMetrics metrics = new TrafficMetrics();
+    private final ConnectionTimeouts connectionTimeouts
+        = new ConnectionTimeouts();
 
     /**
      * @param componentChannel
@@ -81,6 +85,25 @@ public class WebConsole extends Component {
         MBeanView.addConsole(this);
     }
 
+    /**
+     * Returns the timer wheel that tracks the expiry of the
+     * connections.
+     *
+     * @return the connection timeouts
+     */
+    /* default */ ConnectionTimeouts connectionTimeouts() {
+        return connectionTimeouts;
+    }
+
+    /**
+     * Returns the metrics aggregated over all connections.
+     *
+     * @return the metrics
+     */
+    public TrafficMetrics metrics() {
+        return metrics;
+    }
+
     /**
      * Provides access to the weblet's channel.
      *
@@ -106,6 +129,8 @@ public class WebConsole extends Component {
         var request = event.request();
         switch (request.method()) {
         case "consoleReady": {
+            // Optional parameter is the hash of the cached manifest
+            channel.manifestCollector().setKnownHash(request.param(0, null));
             fire(new ConsoleReady(view.renderSupport()), channel);
             break;
         }
@@ -115,8 +140,8 @@ public class WebConsole extends Component {
                 Arrays.stream((String[]) request.param(1))
                     .map(RenderMode::valueOf)
                     .collect(Collectors.toSet()),
-                request.params().length < 3 ? Collections.emptyMap()
-                    : request.param(2)).setFrontendRequest(),
+                request.param(2, Collections.emptyMap()))
+                    .setFrontendRequest(),
                 channel);
             break;
         }
@@ -133,6 +158,18 @@ public class WebConsole extends Component {
             }
             break;
         }
+        case "conletVisibility": {
+            String conletId = request.param(0, null);
+            Boolean visible = request.param(1, null);
+            if (conletId == null || visible == null) {
+                logger.fine(() -> "Ignoring invalid conletVisibility"
+                    + " request from " + channel + ".");
+                break;
+            }
+            fire(new ConletVisibilityChanged(view.renderSupport(),
+                conletId, visible), channel);
+            break;
+        }
         case "consoleLayout": {
             String[] previewLayout = request.param(0);
             String[] tabsLayout = request.param(1);
@@ -158,8 +195,7 @@ public class WebConsole extends Component {
         case "notifyConletModel": {
             fire(new NotifyConletModel(view.renderSupport(),
                 request.param(0), request.param(1),
-                request.params().length <= 2 ? new Object[0]
-                    : request.param(2)),
+                request.param(2, new Object[0])),
                 channel);
             break;
         }
@@ -219,6 +255,89 @@ public class WebConsole extends Component {
     @SuppressWarnings({ "PMD.CommentRequired", "PMD.AvoidDuplicateLiterals" })
     public interface ConsoleMXBean {
 
+        @SuppressWarnings("PMD.CommentRequired")
+        class HistogramInfo {
+
+            private final TrafficMetrics.Histogram histogram;
+
+            public HistogramInfo(TrafficMetrics.Histogram histogram) {
+                this.histogram = histogram;
+            }
+
+            public long[] getBounds() {
+                return histogram.bounds();
+            }
+
+            public long[] getCounts() {
+                return histogram.counts();
+            }
+        }
+
+        @SuppressWarnings("PMD.CommentRequired")
+        class TrafficInfo {
+
+            private final TrafficMetrics metrics;
+
+            public TrafficInfo(TrafficMetrics metrics) {
+                this.metrics = metrics;
+            }
+
+            private static HistogramInfo
+                    info(TrafficMetrics.Histogram histogram) {
+                // Histograms are only maintained for the console
+                return histogram == null ? null
+                    : new HistogramInfo(histogram);
+            }
+
+            public long getMessagesIn() {
+                return metrics.messagesIn();
+            }
+
+            public long getCharsIn() {
+                return metrics.charsIn();
+            }
+
+            public long getMessagesOut() {
+                return metrics.messagesOut();
+            }
+
+            public long getCommandsOut() {
+                return metrics.commandsOut();
+            }
+
+            public long getCharsOut() {
+                return metrics.charsOut();
+            }
+
+            public long getSerializationNanos() {
+                return metrics.serializationNanos();
+            }
+
+            public SortedMap<String, Long> getMethodCounts() {
+                return metrics.methodCounts();
+            }
+
+            public HistogramInfo getInboundSizes() {
+                return info(metrics.inboundSizes());
+            }
+
+            public HistogramInfo getOutboundSizes() {
+                return info(metrics.outboundSizes());
+            }
+
+            public HistogramInfo getSerializationMicros() {
+                return info(metrics.serializationTimes());
+            }
+
+            public HistogramInfo getQueueDepths() {
+                return info(metrics.queueDepths());
+            }
+
+            public HistogramInfo getFirstPreviewMillis() {
+                return info(metrics.firstPreviewTimes());
+            }
+        }
+
         @SuppressWarnings("PMD.CommentRequired")
         class ConsoleConnectionInfo {
 
@@ -237,6 +356,22 @@ public class WebConsole extends Component {
                 return connection.expiresAt().atZone(ZoneId.systemDefault())
                     .toString();
             }
+
+            public int getPendingCommands() {
+                return connection.pendingCommands();
+            }
+
+            public long getDroppedCommands() {
+                return connection.droppedCommands();
+            }
+
+            public long getCoalescedCommands() {
+                return connection.coalescedCommands();
+            }
+
+            public TrafficInfo getTraffic() {
+                return new TrafficInfo(connection.metrics());
+            }
         }
 
         String getComponentPath();
@@ -248,6 +383,8 @@ public class WebConsole extends Component {
         void setUseMinifiedResources(boolean useMinifiedResources);
 
         SortedMap<String, ConsoleConnectionInfo> getConsoleConnections();
+
+        TrafficInfo getTraffic();
     }
 
     @SuppressWarnings("PMD.CommentRequired")
@@ -337,6 +474,12 @@ public class WebConsole extends Component {
             });
             return result;
         }
+
+        @Override
+        public TrafficInfo getTraffic() {
+            return new TrafficInfo(console().map(WebConsole::metrics)
+                .orElseGet(TrafficMetrics::new));
+        }
     }
 
     /**
@@ -0,0 +1,110 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.CharBuffer;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jgrapes.core.Components;
+import org.jgrapes.core.EventPipeline;
+import org.jgrapes.io.events.Input;
+import org.jgrapes.io.util.ManagedBuffer;
+import org.jgrapes.webconsole.base.events.JsonInput;
+
+/**
+ * An alternative to the {@link WebSocketInputSink} that decodes
+ * the JSON messages directly while handling the {@link Input} events
+ * (see {@link JsonRpcDecoder}) and fires the messages as 
+ * {@link JsonInput} events. In contrast to the 
+ * {@link WebSocketInputSink}, no thread (and no buffer for passing
+ * the data to the thread) is required for a connection.
+ * 
+ * @see ConsoleWeblet#setNonBlockingInput(boolean)
+ */
+public class WebSocketInputDecoder {
+
+    private static final Logger logger
+        = Logger.getLogger(WebSocketInputDecoder.class.getName());
+
+    private final WeakReference<ConsoleConnection> channelRef;
+    private final WeakReference<EventPipeline> pipelineRef;
+    private final JsonRpcDecoder<WcJsonRpc> decoder
+        = new JsonRpcDecoder<>(WebSocketInputSink.mapper, WcJsonRpc.class);
+    private boolean closed;
+
+    /**
+     * Instantiates a new web socket input decoder.
+     *
+     * @param wsInPipeline the ws in pipeline
+     * @param consoleChannel the web console channel
+     */
+    public WebSocketInputDecoder(EventPipeline wsInPipeline,
+            ConsoleConnection consoleChannel) {
+        channelRef = new WeakReference<>(consoleChannel);
+        pipelineRef = new WeakReference<>(wsInPipeline);
+    }
+
+    /**
+     * Decode the data and fire the completely received messages.
+     * Calling this method with `null` closes the decoder.
+     *
+     * @param input the data to be converted
+     */
+    public void feed(ManagedBuffer<CharBuffer> input) {
+        if (closed) {
+            return;
+        }
+        try {
+            if (input == null) {
+                closed = true;
+                decoder.close(this::dispatch);
+                return;
+            }
+            decoder.feed(input.backingBuffer().duplicate(), this::dispatch);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e, () -> toString()
+                + " cannot read JSON: " + e.getMessage());
+            closed = true;
+        }
+    }
+
+    private void dispatch(WcJsonRpc rpc) {
+        if (closed) {
+            return;
+        }
+        if (!WebSocketInputSink.dispatch(rpc, channelRef.get(),
+            pipelineRef.get())) {
+            closed = true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder res = new StringBuilder()
+            .append(Components.objectName(this)).append(" [");
+        Optional.ofNullable(channelRef.get()).ifPresentOrElse(
+            c -> res.append(c.toString()),
+            () -> res.append('?'));
+        return res.append(']').toString();
+    }
+
+}
@@ -132,26 +132,44 @@ public class WebSocketInputSink extends Thread {
                 break;
             }
             // Fully decoded JSON available.
-            ConsoleConnection connection = channelRef.get();
-            EventPipeline eventPipeline = pipelineRef.get();
-            if (eventPipeline == null || connection == null) {
+            if (!dispatch(rpc, channelRef.get(), pipelineRef.get())) {
                 break;
             }
-            // WebConsole connection established, check for special disconnect
-            if ("disconnect".equals(rpc.method())
-                && connection.consoleConnectionId().equals(rpc.param(0))) {
-                connection.close();
-                return;
-            }
-            // Ordinary message from web console (view) to server.
-            connection.refresh();
-            if ("keepAlive".equals(rpc.method())) {
-                continue;
-            }
-            eventPipeline.fire(new JsonInput(rpc), connection);
         }
     }
 
+    /**
+     * Handles a decoded {@link JsonRpc}. Special messages (disconnect
+     * and keep alive) are handled directly, all other messages are
+     * fired as {@link JsonInput} events on the connection.
+     *
+     * @param rpc the rpc
+     * @param connection the connection, may be `null`
+     * @param eventPipeline the event pipeline, may be `null`
+     * @return `false` if no further messages should be processed
+     */
+    /* default */ static boolean dispatch(JsonRpc rpc,
+            ConsoleConnection connection, EventPipeline eventPipeline) {
+        if (eventPipeline == null || connection == null) {
+            return false;
+        }
+        connection.metrics()
+            .recordRequest(WcJsonRpc.knownMethod(rpc.method()));
+        // WebConsole connection established, check for special disconnect
+        if ("disconnect".equals(rpc.method())
+            && connection.consoleConnectionId().equals(rpc.param(0))) {
+            connection.close();
+            return false;
+        }
+        // Ordinary message from web console (view) to server.
+        connection.refresh();
+        if ("keepAlive".equals(rpc.method())) {
+            return true;
+        }
+        eventPipeline.fire(new JsonInput(rpc), connection);
+        return true;
+    }
+
     @Override
     public String toString() {
         StringBuilder res = new StringBuilder()
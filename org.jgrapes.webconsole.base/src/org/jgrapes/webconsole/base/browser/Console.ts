@@ -52,12 +52,25 @@ class Console {
     private _resourceManager: ResourceManager;
     private _dialogIdCounter = 0;
     private _pageComponentCounter = 0;
+    private _placeholderObserver: IntersectionObserver | null = null;
+    private _visibilityObserver: IntersectionObserver | null = null;
+    private _shownConletElements = new Map<string, Set<Element>>();
+    private _hiddenConlets = new Set<string>();
 
     constructor() {
         document.querySelector("body")?.append(parseHtml(
             '<div id="console-modal-slot"></div>')[0]);
         let _this = this;
         this._resourceManager = new ResourceManager(this);
+        document.addEventListener("visibilitychange", () => {
+            for (let conletId of _this._shownConletElements.keys()) {
+                _this._reportVisibility(conletId);
+            }
+        });
+        this._webSocket.addMessageHandler('loadScripts',
+            (scriptResources) => {
+                _this._resourceManager.loadScripts(scriptResources);
+            });
         this._webSocket.addMessageHandler('addPageResources',
             (cssUris, cssSource, scriptResources) => {
                 _this._resourceManager.addPageResources(
@@ -211,8 +224,9 @@ class Console {
         Log.debug("Initializing renderer...");
         this._renderer?.init(options);
 
-        // With everything prepared, send console ready
-        this.send("consoleReady");
+        // With everything prepared, send console ready (and the
+        // hash of the manifest that we already know)
+        this.send("consoleReady", this._webSocket.manifestHash());
         Log.debug("ConsoleReady sent.");
     }
 
@@ -388,6 +402,9 @@ class Console {
         }
         this._renderer!.updateConletPreview(isNew, conlet!, modes,
             parseHtml(content), foreground);
+        if (isNew) {
+            this._trackVisibility(conlet!.element());
+        }
         this._execOnLoad(conlet!.element(), !isNew);
         this._resolveComponents();
     }
@@ -406,11 +423,16 @@ class Console {
         }
         this._renderer!.updateConletView(isNew, conlet!, modes,
             parseHtml(content), foreground);
+        if (isNew) {
+            this._trackVisibility(conlet!.element());
+        }
         this._execOnLoad(conlet!.element(), !isNew);
         this._resolveComponents();
     }
 
     private _execOnLoad(container: HTMLElement, isUpdate: boolean) {
+        container.querySelectorAll("[data-jgwc-render-when-visible]")
+            .forEach((element) => this._observePlaceholder(element));
         container.querySelectorAll("[data-jgwc-on-load]").forEach((element) => {
             let onLoad = (<HTMLElement>element).dataset["jgwcOnLoad"];
             let segs = onLoad!.split(".");
@@ -427,6 +449,112 @@ class Console {
         });
     }
 
+    /**
+     * Tracks whether the given preview or view of a conlet is shown.
+     */
+    private _trackVisibility(element: HTMLElement) {
+        let conletId = element.dataset["conletId"]!;
+        if (!this._shownConletElements.has(conletId)) {
+            this._shownConletElements.set(conletId, new Set());
+        }
+        if (typeof IntersectionObserver === "undefined") {
+            this._shownConletElements.get(conletId)!.add(element);
+            return;
+        }
+        let _this = this;
+        if (!this._visibilityObserver) {
+            this._visibilityObserver = new IntersectionObserver((entries) => {
+                let changed = new Set<string>();
+                for (let entry of entries) {
+                    let id = (<HTMLElement>entry.target).dataset["conletId"]!;
+                    let shown = _this._shownConletElements.get(id);
+                    if (!shown) {
+                        continue;
+                    }
+                    if (entry.isIntersecting) {
+                        shown.add(entry.target);
+                    } else {
+                        shown.delete(entry.target);
+                    }
+                    changed.add(id);
+                }
+                changed.forEach((id) => _this._reportVisibility(id));
+            });
+        }
+        this._visibilityObserver.observe(element);
+    }
+
+    /**
+     * Stops tracking the given preview or view of a conlet.
+     */
+    private _untrackVisibility(element: HTMLElement) {
+        this._visibilityObserver?.unobserve(element);
+        let conletId = element.dataset["conletId"]!;
+        let shown = this._shownConletElements.get(conletId);
+        if (!shown) {
+            return;
+        }
+        shown.delete(element);
+        if (!this._renderer!.findConletPreview(conletId)
+            && !this._renderer!.findConletView(conletId)) {
+            this._shownConletElements.delete(conletId);
+            this._hiddenConlets.delete(conletId);
+        } else {
+            this._reportVisibility(conletId);
+        }
+    }
+
+    /**
+     * Notifies the server if the visibility of the conlet has changed.
+     * Conlets are visible if at least one of their previews or
+     * views is shown and the document isn't hidden.
+     */
+    private _reportVisibility(conletId: string) {
+        let visible = !document.hidden
+            && this._shownConletElements.get(conletId)!.size > 0;
+        if (visible === !this._hiddenConlets.has(conletId)) {
+            return;
+        }
+        if (visible) {
+            this._hiddenConlets.delete(conletId);
+        } else {
+            this._hiddenConlets.add(conletId);
+        }
+        this.send("conletVisibility", conletId, visible);
+    }
+
+    /**
+     * Requests the rendering of the conlet when the placeholder
+     * becomes visible, i.e. when it is scrolled into view or
+     * the tab that contains it is activated.
+     */
+    private _observePlaceholder(placeholder: Element) {
+        let _this = this;
+        let requestRendering = (element: Element) => {
+            let conletId = (<HTMLElement>element.closest("[data-conlet-id]"))
+                ?.dataset["conletId"];
+            let modes = (<HTMLElement>element).dataset["jgwcRenderWhenVisible"];
+            if (conletId && modes) {
+                _this.renderConlet(conletId, <RenderMode[]>modes.split(","));
+            }
+        };
+        if (typeof IntersectionObserver === "undefined") {
+            requestRendering(placeholder);
+            return;
+        }
+        if (!this._placeholderObserver) {
+            this._placeholderObserver = new IntersectionObserver((entries) => {
+                for (let entry of entries) {
+                    if (entry.isIntersecting) {
+                        _this._placeholderObserver!.unobserve(entry.target);
+                        requestRendering(entry.target);
+                    }
+                }
+            });
+        }
+        this._placeholderObserver.observe(placeholder);
+    }
+
     /**
      * Execute unload functions depth first. 
      */
@@ -436,6 +564,9 @@ class Console {
                 this._execOnUnload(<HTMLElement>element.children[i], isUpdate);
             }
         }
+        if (element.hasAttribute("data-jgwc-render-when-visible")) {
+            this._placeholderObserver?.unobserve(element);
+        }
         if (element.hasAttribute("data-jgwc-on-unload")) {
             let onUnload = (<HTMLElement>element).dataset["jgwcOnUnload"];
             let segs = onUnload!.split(".");
@@ -684,6 +815,7 @@ class Console {
         if (view) {
             modes.push(RenderMode.View);
             this._renderer!.removeConletDisplays([view]);
+            this._untrackVisibility(view.element());
             this._execOnUnload(view.element(), false);
             this._removeEmbedded(notifications, view);
         }
@@ -691,6 +823,7 @@ class Console {
         if (preview) {
             modes.push(RenderMode.Preview);
             this._renderer!.removeConletDisplays([preview]);
+            this._untrackVisibility(preview.element());
             this._execOnUnload(preview.element(), false);
             this._removeEmbedded(notifications, preview);
         }
@@ -719,6 +852,7 @@ class Console {
         }
         let notifications = new Array<Object>();
         this._renderer!.removeConletDisplays([view]);
+        this._untrackVisibility(view.element());
         this._execOnUnload(view.element(), false);
         this._removeEmbedded(notifications, view);
         notifications.push({"conletId": conletId,
@@ -46,11 +46,17 @@ class ConsoleWebSocket {
     private _connectionLost = false;
     private _oldConnectionId: string | null;
     private _beingHandled: any;
+    private _received: number | null = 0;
 
     constructor(console: Console) {
         this._console = console;
         this._oldConnectionId = sessionStorage.getItem(
             "org.jgrapes.webconsole.base.connectionId");
+        let _this = this;
+        this.addMessageHandler('resync', () => _this._resync());
+        this.addMessageHandler('manifest',
+            (hash: string, commands: any[] | null) =>
+                _this._applyManifest(hash, commands));
     }
 
     /**
@@ -74,6 +80,10 @@ class ConsoleWebSocket {
         if (this._oldConnectionId) {
             location += "?was=" + this._oldConnectionId;
             this._oldConnectionId = null;
+        } else if (!this._initialConnect) {
+            // Reconnect, report number of commands received for replay
+            location += "?was=" + this._connectionId + ":"
+                + (this._received === null ? -1 : this._received);
         }
         Log.debug("Creating WebSocket for " + location);
         this._ws = new WebSocket(location);
@@ -86,17 +96,9 @@ class ConsoleWebSocket {
                 _this._console.connectionRestored();
             }
             _this._drainSendQueue();
-            if (_this._initialConnect) {
-                _this._initialConnect = false;
-            } else {
-                // Make sure to get any lost updates
-                _this._console.findPreviews().forEach(function(conlet) {
-                    _this._console.renderConlet(conlet.id(), [RenderMode.Preview]);
-                });
-                _this._console.findViews().forEach(function(conlet) {
-                    _this._console.renderConlet(conlet.id(), [RenderMode.View]);
-                });
-            }
+            // On reconnect, the server replays the lost updates
+            // or sends "resync".
+            _this._initialConnect = false;
             // Activate timer
             _this._lastSendAt = Date.now();
             _this._rescheduleInactivityCheck();
@@ -129,8 +131,15 @@ class ConsoleWebSocket {
                 Log.error(e.name + ":" + e.lineNumber + ":" + e.columnNumber
                     + ": " + e.message + ". Data: ");
                 Log.error(event.data);
+                // Count of received commands is unreliable now
+                _this._received = null;
                 return;
             }
+            if (!Array.isArray(msg) && msg.method === "resync") {
+                _this._received = msg.params[0];
+            } else if (_this._received !== null) {
+                _this._received += Array.isArray(msg) ? msg.length : 1;
+            }
             _this._recvQueue.push(msg);
             if (!_this._isHandling) {
                 _this._handleMessages();
@@ -205,14 +214,68 @@ class ConsoleWebSocket {
         }
         let idleFor = now - _this._lastSendAt;
         if (idleFor >= _this._console.connectionRefreshInterval) {
-            // Sending implies update for lastSendAt and rescheduling
-            _this._send({
-                "jsonrpc": "2.0", "method": "keepAlive",
-                "params": []
-            });
+            // Sending implies update for lastSendAt and rescheduling.
+            // Keep alive is sent as minimal message, not as JSON RPC.
+            _this._sendRaw(".");
+        }
+    }
+
+    _resync() {
+        // Make sure to get any lost updates
+        let _this = this;
+        _this._console.findPreviews().forEach(function(conlet) {
+            _this._console.renderConlet(conlet.id(), [RenderMode.Preview]);
+        });
+        _this._console.findViews().forEach(function(conlet) {
+            _this._console.renderConlet(conlet.id(), [RenderMode.View]);
+        });
+    }
+
+    /**
+     * Returns the hash of the console manifest kept in the
+     * local storage, if any.
+     * 
+     * @return the hash or `null`
+     */
+    manifestHash(): string | null {
+        try {
+            let stored = localStorage.getItem(ConsoleWebSocket._manifestKey());
+            return stored ? JSON.parse(stored).hash : null;
+        } catch (e: any) {
+            return null;
         }
     }
 
+    static _manifestKey() {
+        return "org.jgrapes.webconsole.base.manifest:"
+            + window.location.pathname;
+    }
+
+    _applyManifest(hash: string, commands: any[] | null) {
+        let key = ConsoleWebSocket._manifestKey();
+        if (commands === null) {
+            // Server assumes that we have the manifest
+            let stored = localStorage.getItem(key);
+            let manifest = stored ? JSON.parse(stored) : null;
+            if (!manifest || manifest.hash !== hash) {
+                // Lost in the meantime, start over.
+                localStorage.removeItem(key);
+                window.location.reload();
+                return;
+            }
+            commands = manifest.commands as any[];
+        } else {
+            try {
+                localStorage.setItem(key, JSON.stringify({
+                    "hash": hash, "commands": commands }));
+            } catch (e: any) {
+                Log.warn("Cannot store console manifest: " + e);
+            }
+        }
+        // Handle the manifest's commands next
+        this._recvQueue.unshift(...commands);
+    }
+
     _initiateReconnect() {
         if (!this._reconnectTimer) {
             let _this = this;
@@ -237,8 +300,12 @@ class ConsoleWebSocket {
     }
 
     _send(data: any) {
+        this._sendRaw(JSON.stringify(data));
+    }
+
+    _sendRaw(msg: string) {
         this._clearInactivityCheck();
-        this._sendQueue.push(JSON.stringify(data));
+        this._sendQueue.push(msg);
         this._drainSendQueue();
         this._lastSendAt = Date.now();
         this._rescheduleInactivityCheck();
@@ -308,6 +375,12 @@ class ConsoleWebSocket {
                 break;
             }
             this._beingHandled = this._recvQueue.shift();
+            if (Array.isArray(this._beingHandled)) {
+                // Batch, handle the notifications in order
+                this._recvQueue.unshift(...this._beingHandled);
+                this._beingHandled = null;
+                continue;
+            }
             var handler = this._messageHandlers.get(this._beingHandled.method);
             if (!handler) {
                 Log.error("No handler for invoked method " + this._beingHandled.method);
@@ -70,7 +70,7 @@ class ResourceManager {
         this._startScriptLoad(scriptResource);
     }
 
-    _startScriptLoad(scriptResource: ScriptResource) {
+    _startScriptLoad(scriptResource: ScriptResource, ordered = false) {
         let _this = this;
         let head = document.querySelector("head")!;
         let script = document.createElement("script");
@@ -90,9 +90,10 @@ class ResourceManager {
         if (!scriptResource.uri) {
             return;
         }
-        // Asynchronous loading.
+        // Asynchronous loading. Ordered scripts are still loaded in
+        // parallel, but executed in the order of their insertion.
         script.src = scriptResource.uri;
-        script.async = true;
+        script.async = !ordered;
         script.addEventListener('load', function(event: Event) {
             // Remove this from loading
             _this._loadingScripts.delete(script.src);
@@ -184,6 +185,30 @@ class ResourceManager {
         }
     }
 
+    /**
+     * Loads the given script resources. The server has ordered
+     * the resources such that every resource follows the resources
+     * that provide the features it requires. All resources are
+     * therefore requested immediately, the browser executes them
+     * in the given order.
+     * 
+     * @param scriptResources the script resources
+     */
+    loadScripts(scriptResources: ScriptResource[]) {
+        for (let scriptResource of scriptResources) {
+            if (document.querySelector("head > script[src='" 
+                    + scriptResource.uri + "']")) {
+                continue;
+            }
+            if (this._debugLoading) {
+                scriptResource.id = scriptResource.provides.length > 0
+                    ? scriptResource.provides.join("/") : scriptResource.uri;
+            }
+            scriptResource.requires = [];
+            this._startScriptLoad(scriptResource, true);
+        }
+    }
+
     lockWhileLoading() {
         if (this._loadingScripts.size > 0 && !this._unlockMessageQueueAfterLoad) {
             this._console.lockMessageQueue();
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.jgrapes.webconsole.base.Conlet.RenderMode;
 import org.jgrapes.webconsole.base.RenderSupport;
@@ -197,6 +198,21 @@ public class AddConletType extends ConsoleCommand {
         return scriptResources.toArray(new ScriptResource[0]);
     }
 
+    /**
+     * Removes the script resources and the CSS URIs that match
+     * the given filter. Script resources without a URI are never
+     * removed.
+     *
+     * @param filter the filter
+     * @return the event for easy chaining
+     */
+    public AddConletType removeResources(Predicate<URI> filter) {
+        scriptResources.removeIf(script -> script.scriptUri() != null
+            && filter.test(script.scriptUri()));
+        cssUris.removeIf(filter);
+        return this;
+    }
+
     /**
      * Return all CSS URIs.
      * 
@@ -31,6 +31,7 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.jgrapes.webconsole.base.PageResourceProvider;
 import org.jgrapes.webconsole.base.freemarker.FreeMarkerConsoleWeblet;
@@ -144,6 +145,21 @@ public class AddPageResources extends ConsoleCommand {
         return this;
     }
 
+    /**
+     * Removes the script resources and the CSS URIs that match
+     * the given filter. Script resources without a URI are never
+     * removed.
+     *
+     * @param filter the filter
+     * @return the event for easy chaining
+     */
+    public AddPageResources removeResources(Predicate<URI> filter) {
+        scriptResources.removeIf(script -> script.scriptUri() != null
+            && filter.test(script.scriptUri()));
+        cssUris.removeIf(filter);
+        return this;
+    }
+
     /**
      * Return all CSS URIs.
      * 
@@ -40,6 +40,24 @@ public class CloseModalDialog extends ConsoleCommand {
         this.conletId = conletId;
     }
 
+    /**
+     * Returns the conlet type.
+     *
+     * @return the conlet type
+     */
+    public String conletType() {
+        return conletType;
+    }
+
+    /**
+     * Returns the conlet id.
+     *
+     * @return the conlet id
+     */
+    public String conletId() {
+        return conletId;
+    }
+
     @Override
     public void emitJson(Writer writer) throws IOException {
         emitJson(writer, "closeModalDialog", conletType, conletId);
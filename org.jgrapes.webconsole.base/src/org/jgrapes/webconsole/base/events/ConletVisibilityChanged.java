@@ -0,0 +1,80 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base.events;
+
+import org.jgrapes.core.Event;
+import org.jgrapes.webconsole.base.RenderSupport;
+
+/**
+ * A notification that a conlet has become visible or hidden in the 
+ * browser. A conlet is considered visible if at least one of its
+ * representations (preview or view) is shown (i.e. is scrolled into
+ * view and not in an inactive tab) and the browser tab with the
+ * console is not in the background.
+ */
+@SuppressWarnings("PMD.DataClass")
+public class ConletVisibilityChanged extends Event<Void> {
+
+    private final RenderSupport renderSupport;
+    private final String conletId;
+    private final boolean visible;
+
+    /**
+     * Creates a new event.
+     *
+     * @param renderSupport the render support from the web console in case
+     * the response requires it
+     * @param conletId the web console component model that the notification is
+     * directed at
+     * @param visible whether the conlet is visible
+     */
+    public ConletVisibilityChanged(RenderSupport renderSupport,
+            String conletId, boolean visible) {
+        this.renderSupport = renderSupport;
+        this.conletId = conletId;
+        this.visible = visible;
+    }
+
+    /**
+     * Returns the render support.
+     * 
+     * @return the render support
+     */
+    public RenderSupport renderSupport() {
+        return renderSupport;
+    }
+
+    /**
+     * Returns the web console component id.
+     * 
+     * @return the web console component id
+     */
+    public String conletId() {
+        return conletId;
+    }
+
+    /**
+     * Returns whether the conlet is visible.
+     *
+     * @return the result
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+}
@@ -66,12 +66,7 @@ public abstract class ConsoleCommand extends Event<Void> {
      */
     protected void emitJson(Writer writer, String method, Object... params)
             throws IOException {
-        JsonRpc rpc = new JsonRpc(method);
-        if (params.length > 0) {
-            for (Object obj : params) {
-                rpc.addParam(obj);
-            }
-        }
+        JsonRpc rpc = new JsonRpc(method).setParams(params);
         mapper.writeValue(writer, rpc);
         writer.flush();
     }
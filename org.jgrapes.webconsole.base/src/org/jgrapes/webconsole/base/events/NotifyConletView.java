@@ -18,15 +18,29 @@
 
 package org.jgrapes.webconsole.base.events;
 
+import com.fasterxml.jackson.databind.util.RawValue;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.Arrays;
+import java.util.Optional;
 import org.jgrapes.core.Channel;
 import org.jgrapes.core.Components;
 
 /**
  * A notification (as defined by the JSON RPC specification) to be sent to
  * the web console component view (the browser).
+ * 
+ * If the same notification is to be sent to many conlets
+ * (and connections), the copies for the individual conlets
+ * should be obtained with {@link #forConlet(String)}. The
+ * parameters are then serialized only once for all copies.
+ * 
+ * Notifications that only provide the latest state (e.g. 
+ * periodic updates) can be marked as coalescable using
+ * {@link #setCoalescingKey(Object)}. Such a notification 
+ * replaces any notification with the same conlet id, method and
+ * key that has been sent to the console connection but
+ * not been processed yet.
  */
 public class NotifyConletView extends ConsoleCommand {
 
@@ -34,6 +48,8 @@ public class NotifyConletView extends ConsoleCommand {
     private final String conletId;
     private final String method;
     private final Object[] params;
+    private EncodedParams encodedParams;
+    private Object coalescingKey;
 
     /**
      * Creates a new event.
@@ -54,6 +70,63 @@ public class NotifyConletView extends ConsoleCommand {
         this.params = Arrays.copyOf(params, params.length);
     }
 
+    private NotifyConletView(NotifyConletView template, String conletId) {
+        this.conletType = template.conletType;
+        this.conletId = conletId;
+        this.method = template.method;
+        this.params = template.params;
+        this.encodedParams = template.encodedParams;
+        this.coalescingKey = template.coalescingKey;
+    }
+
+    /**
+     * Returns a copy of this event that is directed at the given
+     * conlet. The JSON representation of the parameters is shared
+     * by all copies, i.e. it is created only once, when the first
+     * copy is sent. The parameters must therefore not be modified
+     * after invoking this method.
+     *
+     * @param conletId the conlet id
+     * @return the event
+     */
+    public NotifyConletView forConlet(String conletId) {
+        synchronized (this) {
+            if (encodedParams == null) {
+                encodedParams = new EncodedParams(params);
+            }
+        }
+        return new NotifyConletView(this, conletId);
+    }
+
+    /**
+     * Marks the notification as replaceable by a later notification
+     * with the same conlet id, method and key. Setting the key to
+     * `null` (the default) disables coalescing.
+     *
+     * @param key the key, usually the empty string if all 
+     * notifications for the conlet and method are to be coalesced
+     * @return the event for easy chaining
+     */
+    public NotifyConletView setCoalescingKey(Object key) {
+        this.coalescingKey = key;
+        return this;
+    }
+
+    /**
+     * Returns the key used for coalescing notifications. If
+     * a key has been set with {@link #setCoalescingKey(Object)},
+     * the result combines conlet id, method and the key.
+     *
+     * @return the key
+     */
+    public Optional<Object> coalescingKey() {
+        if (coalescingKey == null) {
+            return Optional.empty();
+        }
+        // Template notifications have no conlet id
+        return Optional.of(Arrays.asList(conletId, method, coalescingKey));
+    }
+
     /**
      * Returns the web console component class.
      * 
@@ -92,10 +165,36 @@ public class NotifyConletView extends ConsoleCommand {
 
     @Override
     public void emitJson(Writer writer) throws IOException {
+        if (encodedParams != null) {
+            emitJson(writer, "notifyConletView", conletType, conletId,
+                method, encodedParams.json());
+            return;
+        }
         emitJson(writer, "notifyConletView", conletType(), conletId(),
             method(), params());
     }
 
+    /**
+     * The lazily created JSON representation of the parameters,
+     * shared by the copies of an event.
+     */
+    private static final class EncodedParams {
+        private final Object[] params;
+        private RawValue encoded;
+
+        private EncodedParams(Object[] params) {
+            this.params = params;
+        }
+
+        @SuppressWarnings("PMD.AvoidSynchronizedAtMethodLevel")
+        private synchronized RawValue json() throws IOException {
+            if (encoded == null) {
+                encoded = new RawValue(mapper.writeValueAsString(params));
+            }
+            return encoded;
+        }
+    }
+
     /*
      * (non-Javadoc)
      * 
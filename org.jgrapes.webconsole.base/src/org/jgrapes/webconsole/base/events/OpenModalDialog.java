@@ -72,6 +72,24 @@ public class OpenModalDialog extends ConsoleCommand {
         this(conletType, conletId, content, null);
     }
 
+    /**
+     * Returns the conlet type.
+     *
+     * @return the conlet type
+     */
+    public String conletType() {
+        return conletType;
+    }
+
+    /**
+     * Returns the conlet id.
+     *
+     * @return the conlet id
+     */
+    public String conletId() {
+        return conletId;
+    }
+
     /**
      * Adds an option to the event.
      * 
@@ -18,11 +18,14 @@
 
 package org.jgrapes.webconsole.base.events;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import org.jgrapes.webconsole.base.Conlet.RenderMode;
@@ -39,6 +42,19 @@ import org.jgrapes.webconsole.base.Conlet.RenderMode;
  * `data-conlet-title`, its value overrides the default title (the display
  * name of the conlet type, see {@link AddConletType#displayNames()}).
  * 
+ * Alternatively, the content can be provided by a {@link ContentProducer}.
+ * The producer is invoked when the command is serialized and writes the
+ * content directly into the JSON representation of the command. This
+ * avoids holding the complete content in memory as a string in addition
+ * to its JSON representation. Note that the producer is invoked by the
+ * thread that sends the command, i.e. by the connection's response
+ * pipeline. While the producer runs, no other commands can be sent
+ * to the connection. Producers should therefore only be used for
+ * content that is cheap to generate (e.g. a template that only
+ * formats data that has been obtained in advance). Content that
+ * is expensive to generate (e.g. because it requires I/O) should
+ * be provided as {@link Future}.
+ * 
  * The content provided is searched for attributes `data-jgwc-on-load`
  * and `data-jgwc-on-unload` which must have as value the name of a 
  * function. When the HTML has been loaded or unloaded (i.e. added to
@@ -52,6 +68,12 @@ import org.jgrapes.webconsole.base.Conlet.RenderMode;
  * which must have as its value the name of a function. This
  * function is invoked when changes made in the form must be
  * applied (e.g. before the dialog is closed).
+ * 
+ * If the content contains an element with an attribute
+ * `data-jgwc-render-when-visible`, the content is considered to
+ * be a placeholder. When the element becomes visible, the console
+ * requests the rendering of the conlet in the render modes
+ * given as (comma separated) value of the attribute.
  */
 public class RenderConlet extends ConsoleCommand {
 
@@ -63,6 +85,23 @@ public class RenderConlet extends ConsoleCommand {
     private Set<RenderMode> renderAs = RenderMode.asSet(RenderMode.Preview);
     private Set<RenderMode> supportedModes = DEFAULT_SUPPORTED;
     private final Future<String> content;
+    private final ContentProducer producer;
+    private volatile Future<String> produced;
+
+    /**
+     * Writes the content of a {@link RenderConlet} command.
+     */
+    @FunctionalInterface
+    public interface ContentProducer {
+
+        /**
+         * Writes the content to the given writer.
+         *
+         * @param out the writer
+         * @throws IOException Signals that an I/O exception has occurred.
+         */
+        void writeTo(Writer out) throws IOException;
+    }
 
     /**
      * Creates a new event.
@@ -76,6 +115,23 @@ public class RenderConlet extends ConsoleCommand {
         this.conletType = conletType;
         this.conletId = conletId;
         this.content = content;
+        this.producer = null;
+    }
+
+    /**
+     * Creates a new event with content that is written by the
+     * given producer when the command is sent.
+     *
+     * @param conletType the conlet type
+     * @param conletId the id of the web console component
+     * @param producer the producer of the content
+     */
+    public RenderConlet(String conletType, String conletId,
+            ContentProducer producer) {
+        this.conletType = conletType;
+        this.conletId = conletId;
+        this.content = null;
+        this.producer = producer;
     }
 
     /**
@@ -164,12 +220,41 @@ public class RenderConlet extends ConsoleCommand {
 
     /**
      * Provides the HTML that displays the web console component 
-     * on the page.
+     * on the page. If the content is provided by a 
+     * {@link ContentProducer}, the producer is invoked to
+     * obtain the result when this method is first called. The
+     * result is kept and also used when the command is sent,
+     * so the advantage of using a producer is lost.
      * 
      * @return the HTML
      */
     public Future<String> content() {
-        return content;
+        if (producer == null) {
+            return content;
+        }
+        Future<String> result = produced;
+        if (result == null) {
+            StringWriter out = new StringWriter();
+            try {
+                producer.writeTo(out);
+                result = CompletableFuture.completedFuture(out.toString());
+            } catch (IOException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+            produced = result;
+        }
+        return result;
+    }
+
+    /**
+     * Checks if the content can be obtained without waiting for
+     * it to be evaluated. Always `true` if the content is provided
+     * by a {@link ContentProducer}.
+     *
+     * @return true, if the content is available
+     */
+    public boolean isContentAvailable() {
+        return producer != null || content.isDone();
     }
 
     /**
@@ -182,6 +267,10 @@ public class RenderConlet extends ConsoleCommand {
     @Override
     public void emitJson(Writer writer)
             throws InterruptedException, IOException {
+        if (producer != null && produced == null) {
+            emitStreamed(writer);
+            return;
+        }
         try {
             emitJson(writer, "updateConlet", conletType(), conletId(),
                 renderAs().stream().map(RenderMode::name)
@@ -193,4 +282,104 @@ public class RenderConlet extends ConsoleCommand {
             throw new IOException(e);
         }
     }
+
+    private void emitStreamed(Writer writer) throws IOException {
+        try (JsonGenerator generator
+            = mapper.getFactory().createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("jsonrpc", "2.0");
+            generator.writeStringField("method", "updateConlet");
+            generator.writeArrayFieldStart("params");
+            generator.writeString(conletType());
+            generator.writeString(conletId());
+            String[] modes = renderAs().stream().map(RenderMode::name)
+                .toArray(size -> new String[size]);
+            generator.writeArray(modes, 0, modes.length);
+            modes = supportedRenderModes().stream().map(RenderMode::name)
+                .toArray(size -> new String[size]);
+            generator.writeArray(modes, 0, modes.length);
+            generator.writeRaw(",\"");
+            generator.flush();
+            producer.writeTo(new JsonStringWriter(writer));
+            generator.writeRaw('"');
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        writer.flush();
+    }
+
+    /**
+     * A writer that escapes the characters written to it as
+     * required for the content of a JSON string.
+     */
+    private static final class JsonStringWriter extends Writer {
+
+        private final Writer out;
+
+        private JsonStringWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        @SuppressWarnings("PMD.AvoidLiteralsInIfCondition")
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            int start = off;
+            int end = off + len;
+            for (int i = off; i < end; i++) {
+                char chr = cbuf[i];
+                if (chr >= 0x20 && chr != '"' && chr != '\\') {
+                    continue;
+                }
+                out.write(cbuf, start, i - start);
+                start = i + 1;
+                switch (chr) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                case '\b':
+                    out.write("\\b");
+                    break;
+                case '\f':
+                    out.write("\\f");
+                    break;
+                default:
+                    out.write(String.format("\\u%04X", (int) chr));
+                    break;
+                }
+            }
+            out.write(cbuf, start, end - start);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            char[] chunk = new char[Math.min(len, 1024)];
+            for (int pos = off; pos < off + len; pos += chunk.length) {
+                int count = Math.min(chunk.length, off + len - pos);
+                str.getChars(pos, pos + count, chunk, 0);
+                write(chunk, 0, count);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Closed by emitter
+        }
+    }
 }
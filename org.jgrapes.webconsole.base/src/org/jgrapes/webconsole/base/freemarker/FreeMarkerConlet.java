@@ -28,6 +28,7 @@ import freemarker.template.TemplateModel;
 import freemarker.template.TemplateModelException;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
@@ -35,7 +36,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.regex.Pattern;
@@ -48,14 +52,14 @@ import org.jgrapes.core.EventPipeline;
 import org.jgrapes.core.annotation.HandlerDefinition.ChannelReplacements;
 import org.jgrapes.http.Session;
 import org.jgrapes.io.IOSubchannel;
-import org.jgrapes.io.util.ByteBufferWriter;
 import org.jgrapes.webconsole.base.AbstractConlet;
 import org.jgrapes.webconsole.base.ConsoleConnection;
 import org.jgrapes.webconsole.base.RenderSupport;
-import org.jgrapes.webconsole.base.ResourceByProducer;
+import org.jgrapes.webconsole.base.ResourceByContent;
 import org.jgrapes.webconsole.base.events.AddConletRequest;
 import org.jgrapes.webconsole.base.events.ConletResourceRequest;
 import org.jgrapes.webconsole.base.events.NotifyConletModel;
+import org.jgrapes.webconsole.base.events.RenderConlet;
 import org.jgrapes.webconsole.base.events.RenderConletRequest;
 import org.jgrapes.webconsole.base.events.RenderConletRequestBase;
 
@@ -70,6 +74,31 @@ public abstract class FreeMarkerConlet<S> extends AbstractConlet<S> {
 
     private Configuration fmConfig;
     private Map<String, Object> fmModel;
+    private final Map<GeneratedKey, GeneratedResource> generatedResources
+        = new ConcurrentHashMap<>();
+    private boolean cacheResourceTemplates;
+    private volatile RenderCache renderCache;
+
+    /**
+     * Identifies the output generated from a resource template.
+     *
+     * @param path the path of the template
+     * @param locale the locale
+     * @param renderSupport the render support used
+     */
+    private record GeneratedKey(String path, Locale locale,
+            RenderSupport renderSupport) {
+    }
+
+    /**
+     * The output generated from a template.
+     *
+     * @param template the template
+     * @param content the content
+     */
+    private record GeneratedResource(Template template,
+            ResourceByContent.Content content) {
+    }
 
     /**
      * Creates a new component that listens for new events
@@ -167,6 +196,10 @@ public abstract class FreeMarkerConlet<S> extends AbstractConlet<S> {
      *    instances as values (derived from 
      *    {@link AbstractConlet#supportedLocales()}).
      *    
+     * Derived classes that add data depending on the session to this
+     * model must not enable {@link #setCacheResourceTemplates(boolean)
+     * the caching of resource templates}.
+     *    
      * @param session the session
      * @return the model
      */
@@ -316,6 +349,11 @@ public abstract class FreeMarkerConlet<S> extends AbstractConlet<S> {
      * {@link #fmSessionModel(Session)} and
      * sends the result. Else, invoke the super class' method. 
      * 
+     * The result is sent with its hash as entity tag and must be
+     * revalidated by the browser, because it depends on the session.
+     * If {@link #setCacheResourceTemplates(boolean) enabled}, the
+     * result is cached by template, locale and render support.
+     * 
      * @param event the event. The result will be set to
      * `true` on success
      * @param channel the channel
@@ -331,25 +369,99 @@ public abstract class FreeMarkerConlet<S> extends AbstractConlet<S> {
             // Prepare template
             final Template tpl = freemarkerConfig().getTemplate(
                 event.resourceUri().getPath());
-            Map<String, Object> model = fmSessionModel(event.session());
-            model.putAll(fmTypeModel(event.renderSupport()));
+            GeneratedKey key = cacheResourceTemplates
+                ? new GeneratedKey(event.resourceUri().getPath(),
+                    event.session().locale(), event.renderSupport())
+                : null;
+            GeneratedResource generated
+                = key == null ? null : generatedResources.get(key);
+            if (generated == null || generated.template() != tpl) {
+                Map<String, Object> model = fmSessionModel(event.session());
+                model.putAll(fmTypeModel(event.renderSupport()));
+                StringWriter out = new StringWriter();
+                tpl.process(model, out);
+                generated = new GeneratedResource(tpl,
+                    new ResourceByContent.Content(
+                        out.toString().getBytes(StandardCharsets.UTF_8),
+                        HttpResponse.contentType(event.resourceUri()),
+                        Instant.now()));
+                if (key != null) {
+                    generatedResources.put(key, generated);
+                }
+            }
 
             // Everything successfully prepared
-            event.setResult(new ResourceByProducer(event,
-                c -> {
-                    try {
-                        tpl.process(model, new ByteBufferWriter(c));
-                    } catch (TemplateException e) {
-                        throw new IOException(e);
-                    }
-                }, HttpResponse.contentType(event.resourceUri()),
-                Instant.now(), 0));
+            event.setResult(
+                new ResourceByContent(event, generated.content(), 0));
             event.stop();
-        } catch (IOException e) { // NOPMD
+        } catch (IOException | TemplateException e) { // NOPMD
             throw new IllegalArgumentException(e);
         }
     }
 
+    /**
+     * Enables caching of the output generated from resource
+     * templates (see {@link #doGetResource}). The cached output
+     * is used until the template is reloaded by FreeMarker because
+     * it has been modified. The cache is disabled by default.
+     * 
+     * The output is looked up by the template, the locale associated
+     * with the session and the {@link RenderSupport}. Caching must
+     * therefore only be enabled if the resource templates depend
+     * on nothing else. Especially, they must not use any data that
+     * a derived class adds to the {@link #fmSessionModel(Session)}.
+     *
+     * @param enabled whether to cache the output
+     * @return the conlet for easy chaining
+     */
+    public FreeMarkerConlet<S> setCacheResourceTemplates(boolean enabled) {
+        cacheResourceTemplates = enabled;
+        if (!enabled) {
+            generatedResources.clear();
+        }
+        return this;
+    }
+
+    /**
+     * Checks if the output generated from resource templates
+     * is cached.
+     *
+     * @return true, if caching is enabled
+     * @see #setCacheResourceTemplates(boolean)
+     */
+    public boolean cacheResourceTemplates() {
+        return cacheResourceTemplates;
+    }
+
+    /**
+     * Enables caching of the output generated by
+     * {@link #processTemplate(Event, ConsoleConnection, Template, Object,
+     * Object)}. The cache is disabled by default. A cache created
+     * by a previous invocation is closed.
+     *
+     * @param maxSize the maximum total length (in characters) of the
+     * cached output, disables the cache if `0`
+     * @return the conlet for easy chaining
+     */
+    public FreeMarkerConlet<S> setRenderCacheSize(long maxSize) {
+        RenderCache previous = renderCache;
+        renderCache = maxSize > 0 ? new RenderCache(type(), maxSize) : null;
+        if (previous != null) {
+            previous.close();
+        }
+        return this;
+    }
+
+    /**
+     * Returns the render cache, if enabled.
+     *
+     * @return the render cache
+     * @see #setRenderCacheSize(long)
+     */
+    public Optional<RenderCache> renderCache() {
+        return Optional.ofNullable(renderCache);
+    }
+
     /**
      * Returns a future string providing the result
      * from processing the given template with the given data.
@@ -383,15 +495,96 @@ public abstract class FreeMarkerConlet<S> extends AbstractConlet<S> {
      */
     public Future<String> processTemplate(Event<?> request, Template template,
             Object dataModel) {
+        return CompletableFuture.supplyAsync(
+            () -> processTemplate(template, dataModel),
+            executorService(request));
+    }
+
+    /**
+     * Like {@link #processTemplate(Event, Template, Object)}, but
+     * uses the {@link #setRenderCacheSize(long) render cache} if it
+     * is enabled.
+     * 
+     * The cached output is looked up by the template, the locale of 
+     * the console connection and the given version of the state.
+     * The version must therefore change whenever the state changes
+     * in a way that affects the output. Besides the conlet's state,
+     * this includes e.g. the conlet id if the template uses it.
+     * Output generated for a version that is `null` is never cached.
+     *
+     * @param request the request, used to obtain the
+     * {@link ExecutorService} service related with the request being
+     * processed
+     * @param connection the console connection
+     * @param template the template
+     * @param dataModel the data model
+     * @param stateVersion the version of the state
+     * @return the future
+     */
+    public Future<String> processTemplate(Event<?> request,
+            ConsoleConnection connection, Template template, Object dataModel,
+            Object stateVersion) {
+        RenderCache cache = renderCache;
+        if (cache == null || stateVersion == null) {
+            return processTemplate(request, template, dataModel);
+        }
+        Locale locale = connection.locale();
+        Optional<String> cached = cache.get(template, locale, stateVersion);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            String result = processTemplate(template, dataModel);
+            cache.put(template, locale, stateVersion, result);
+            return result;
+        }, executorService(request));
+    }
+
+    /**
+     * Returns a producer for the content of a {@link RenderConlet}
+     * command that processes the given template with the given data.
+     * 
+     * Other than with {@link #processTemplate(Event, Template, Object)},
+     * the template is processed when the command is sent and the
+     * output is written directly into the command's JSON representation.
+     * The output is therefore never held in memory as a string, which is
+     * preferable for templates that generate a large output.
+     * 
+     * The template is processed by the connection's response pipeline,
+     * which cannot send other commands in the meantime. This method
+     * should therefore only be used for templates that are cheap to
+     * process, i.e. templates that don't obtain data while being
+     * processed (e.g. by invoking methods of the data model that
+     * perform I/O or query MBeans).
+     *
+     * @param template the template
+     * @param dataModel the data model
+     * @return the content producer
+     */
+    public RenderConlet.ContentProducer templateContent(Template template,
+            Object dataModel) {
+        return out -> {
+            try {
+                template.process(dataModel, out);
+            } catch (TemplateException e) {
+                throw new IOException(e);
+            }
+        };
+    }
+
+    private static ExecutorService executorService(Event<?> request) {
         return request.processedBy().map(EventPipeline::executorService)
-            .orElse(Components.defaultExecutorService()).submit(() -> {
-                StringWriter out = new StringWriter();
-                try {
-                    template.process(dataModel, out);
-                } catch (TemplateException | IOException e) {
-                    throw new IllegalArgumentException(e);
-                }
-                return out.toString();
-            });
+            .orElse(Components.defaultExecutorService());
+    }
+
+    private static String processTemplate(Template template,
+            Object dataModel) {
+        StringWriter out = new StringWriter();
+        try {
+            template.process(dataModel, out);
+        } catch (TemplateException | IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return out.toString();
     }
 }
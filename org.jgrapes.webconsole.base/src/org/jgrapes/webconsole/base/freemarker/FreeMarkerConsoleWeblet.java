@@ -29,6 +29,7 @@ import freemarker.template.TemplateExceptionHandler;
 import freemarker.template.TemplateMethodModelEx;
 import freemarker.template.TemplateModel;
 import freemarker.template.TemplateModelException;
+import java.io.FilterWriter;
 import java.io.IOException;
 import java.io.Writer;
 import java.net.URI;
@@ -45,6 +46,7 @@ import java.util.UUID;
 import org.jdrupes.httpcodec.protocols.http.HttpConstants.HttpStatus;
 import org.jdrupes.httpcodec.protocols.http.HttpField;
 import org.jdrupes.httpcodec.protocols.http.HttpResponse;
+import org.jdrupes.httpcodec.types.Converters;
 import org.jdrupes.httpcodec.types.MediaType;
 import org.jgrapes.core.Channel;
 import org.jgrapes.http.LanguageSelector.Selection;
@@ -238,6 +240,10 @@ public abstract class FreeMarkerConsoleWeblet extends ConsoleWeblet {
      *  console page. A derived console weblet can then provide its
      *  own "footer.ftl.html" and thus override the version from the
      *  base class(es).
+     *  
+     * The response includes the {@link #preloadLinks(Request.In.Get)
+     * preload links} as `Link` headers. The output is flushed after
+     * the page's `<head>` section has been generated.
      * 
      * @param event the event
      * @param channel the channel
@@ -255,11 +261,17 @@ public abstract class FreeMarkerConsoleWeblet extends ConsoleWeblet {
         MediaType mediaType = MediaType.builder().setType("text", "html")
             .setParameter("charset", UTF_8).build();
         response.setField(HttpField.CONTENT_TYPE, mediaType);
+        List<String> links = preloadLinks(event);
+        if (!links.isEmpty()) {
+            response.setField(new HttpField<>("Link",
+                String.join(", ", links), Converters.STRING));
+        }
         response.setStatus(HttpStatus.OK);
         response.setHasPayload(true);
         channel.respond(new Response(response));
         try (@SuppressWarnings("resource")
-        Writer out = new ByteBufferWriter(channel).suppressClose()) {
+        Writer out = new HeadFlushingWriter(
+            new ByteBufferWriter(channel).suppressClose())) {
             Template tpl = freeMarkerConfig.getTemplate("console.ftl.html");
             Map<String, Object> consoleModel = expandConsoleModel(
                 createConsoleBaseModel(), event, consoleConnectionId);
@@ -269,4 +281,52 @@ public abstract class FreeMarkerConsoleWeblet extends ConsoleWeblet {
         }
     }
 
+    /**
+     * A writer that flushes the output once when the end of the
+     * document's `<head>` section has been written.
+     */
+    private static final class HeadFlushingWriter extends FilterWriter {
+
+        private static final String HEAD_END = "</head>";
+        private final StringBuilder tail = new StringBuilder();
+        private boolean flushed;
+
+        private HeadFlushingWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int chr) throws IOException {
+            super.write(chr);
+            check(String.valueOf((char) chr));
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            super.write(cbuf, off, len);
+            check(new String(cbuf, off, len));
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            super.write(str, off, len);
+            check(str.substring(off, off + len));
+        }
+
+        private void check(String written) throws IOException {
+            if (flushed) {
+                return;
+            }
+            tail.append(written);
+            if (tail.indexOf(HEAD_END) >= 0) {
+                flushed = true;
+                tail.setLength(0);
+                flush();
+                return;
+            }
+            if (tail.length() > HEAD_END.length()) {
+                tail.delete(0, tail.length() - HEAD_END.length());
+            }
+        }
+    }
 }
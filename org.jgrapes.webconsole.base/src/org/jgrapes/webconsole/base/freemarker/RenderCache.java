@@ -0,0 +1,356 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base.freemarker;
+
+import freemarker.template.Template;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import org.jgrapes.core.Components;
+
+/**
+ * A size-bounded cache for the output generated from templates
+ * by a {@link FreeMarkerConlet}. The output is looked up by
+ * template, locale and a version of the data used to generate it,
+ * which must be supplied by the conlet. Entries for a template
+ * become invalid when the template is reloaded by FreeMarker.
+ *
+ * The cached output is limited by its total length in characters.
+ * The least recently used entries are evicted if the limit is
+ * exceeded. Output that is larger than a quarter of the limit is
+ * not cached.
+ *
+ * The cache's statistics are made available as MBean with the
+ * object name "org.jgrapes.webconsole:type=RenderCache,name=...".
+ * The name consists of the name passed to the constructor and
+ * an identifier of the instance, so several caches with the same
+ * name don't hide each other. The MBean is unregistered when the
+ * cache is {@link #close() closed} or, if it isn't closed, when
+ * it is accessed after the cache has been garbage collected.
+ */
+@SuppressWarnings("PMD.GuardLogStatement")
+public class RenderCache {
+
+    @SuppressWarnings("PMD.FieldNamingConventions")
+    private static final Logger logger
+        = Logger.getLogger(RenderCache.class.getName());
+
+    private final long maxSize;
+    private final Info info;
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+    @SuppressWarnings("PMD.LooseCoupling")
+    private final LinkedHashMap<Key, Output> entries
+        = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The key of an entry.
+     *
+     * @param templateName the template name
+     * @param templateLocale the template locale
+     * @param locale the locale
+     * @param version the version of the data
+     */
+    private record Key(String templateName, Locale templateLocale,
+            Locale locale, Object version) {
+    }
+
+    /**
+     * The cached output.
+     *
+     * @param template the template used to generate the output
+     * @param text the output
+     */
+    private record Output(Template template, String text) {
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param name the name used for the MBean
+     * @param maxSize the maximum total length of the cached output
+     */
+    public RenderCache(String name, long maxSize) {
+        this.maxSize = maxSize;
+        info = new Info(this, name);
+    }
+
+    /**
+     * Removes all entries and unregisters the MBean. The cache
+     * should not be used any more after it has been closed.
+     */
+    public void close() {
+        clear();
+        info.unregister();
+    }
+
+    /**
+     * Returns the cached output.
+     *
+     * @param template the template
+     * @param locale the locale
+     * @param version the version of the data
+     * @return the result
+     */
+    public Optional<String> get(Template template, Locale locale,
+            Object version) {
+        Key key = new Key(template.getName(), template.getLocale(), locale,
+            version);
+        synchronized (entries) {
+            Output output = entries.get(key);
+            if (output != null && output.template() != template) {
+                remove(key);
+                output = null;
+            }
+            if (output == null) {
+                misses += 1;
+                return Optional.empty();
+            }
+            hits += 1;
+            return Optional.of(output.text());
+        }
+    }
+
+    /**
+     * Adds output to the cache.
+     *
+     * @param template the template
+     * @param locale the locale
+     * @param version the version of the data
+     * @param text the output
+     */
+    public void put(Template template, Locale locale, Object version,
+            String text) {
+        if (text.length() > maxSize / 4) {
+            return;
+        }
+        Key key = new Key(template.getName(), template.getLocale(), locale,
+            Objects.requireNonNull(version));
+        synchronized (entries) {
+            remove(key);
+            entries.put(key, new Output(template, text));
+            size += text.length();
+            for (Iterator<Output> iter = entries.values().iterator();
+                    size > maxSize && iter.hasNext();) {
+                size -= iter.next().text().length();
+                iter.remove();
+                evictions += 1;
+            }
+        }
+    }
+
+    private void remove(Key key) {
+        Output old = entries.remove(key);
+        if (old != null) {
+            size -= old.text().length();
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            size = 0;
+        }
+    }
+
+    /**
+     * Returns the maximum total length of the cached output.
+     *
+     * @return the value
+     */
+    public long maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the total length of the cached output.
+     *
+     * @return the value
+     */
+    public long size() {
+        synchronized (entries) {
+            return size;
+        }
+    }
+
+    /**
+     * Returns the number of cached entries.
+     *
+     * @return the value
+     */
+    public int entries() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the number of lookups that found an entry.
+     *
+     * @return the value
+     */
+    public long hits() {
+        synchronized (entries) {
+            return hits;
+        }
+    }
+
+    /**
+     * Returns the number of lookups that didn't find an entry.
+     *
+     * @return the value
+     */
+    public long misses() {
+        synchronized (entries) {
+            return misses;
+        }
+    }
+
+    /**
+     * Returns the number of entries that have been evicted.
+     *
+     * @return the value
+     */
+    public long evictions() {
+        synchronized (entries) {
+            return evictions;
+        }
+    }
+
+    /**
+     * The MBean view of a render cache.
+     */
+    @SuppressWarnings("PMD.CommentRequired")
+    public interface RenderCacheMXBean {
+
+        long getMaxSize();
+
+        long getSize();
+
+        int getEntries();
+
+        long getHits();
+
+        long getMisses();
+
+        long getEvictions();
+
+        void clear();
+    }
+
+    /**
+     * Provides the MBean view of a render cache.
+     */
+    @SuppressWarnings("PMD.CommentRequired")
+    private static final class Info implements RenderCacheMXBean {
+
+        private static MBeanServer mbs
+            = ManagementFactory.getPlatformMBeanServer();
+
+        private ObjectName mbeanName;
+        private final WeakReference<RenderCache> cacheRef;
+
+        private Info(RenderCache cache, String name) {
+            cacheRef = new WeakReference<>(cache);
+            try {
+                mbeanName = new ObjectName("org.jgrapes.webconsole:type="
+                    + RenderCache.class.getSimpleName() + ",name="
+                    + ObjectName.quote(name + " ("
+                        + Components.simpleObjectName(cache) + ")"));
+                mbs.registerMBean(this, mbeanName);
+            } catch (MalformedObjectNameException
+                    | InstanceAlreadyExistsException
+                    | MBeanRegistrationException
+                    | NotCompliantMBeanException e) {
+                // Should not happen
+                logger.log(Level.WARNING, e.getMessage(), e);
+            }
+        }
+
+        private void unregister() {
+            try {
+                mbs.unregisterMBean(mbeanName);
+            } catch (MBeanRegistrationException
+                    | InstanceNotFoundException e) { // NOPMD
+                // Already unregistered
+            }
+        }
+
+        private Optional<RenderCache> cache() {
+            RenderCache cache = cacheRef.get();
+            if (cache == null) {
+                unregister();
+            }
+            return Optional.ofNullable(cache);
+        }
+
+        @Override
+        public long getMaxSize() {
+            return cache().map(RenderCache::maxSize).orElse(0L);
+        }
+
+        @Override
+        public long getSize() {
+            return cache().map(RenderCache::size).orElse(0L);
+        }
+
+        @Override
+        public int getEntries() {
+            return cache().map(RenderCache::entries).orElse(0);
+        }
+
+        @Override
+        public long getHits() {
+            return cache().map(RenderCache::hits).orElse(0L);
+        }
+
+        @Override
+        public long getMisses() {
+            return cache().map(RenderCache::misses).orElse(0L);
+        }
+
+        @Override
+        public long getEvictions() {
+            return cache().map(RenderCache::evictions).orElse(0L);
+        }
+
+        @Override
+        public void clear() {
+            cache().ifPresent(RenderCache::clear);
+        }
+    }
+}
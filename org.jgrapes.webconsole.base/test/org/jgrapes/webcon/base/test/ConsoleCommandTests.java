@@ -0,0 +1,85 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webcon.base.test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jgrapes.webconsole.base.Conlet.RenderMode;
+import org.jgrapes.webconsole.base.events.ConsoleCommand;
+import org.jgrapes.webconsole.base.events.NotifyConletView;
+import org.jgrapes.webconsole.base.events.RenderConlet;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class ConsoleCommandTests {
+
+    private static String json(ConsoleCommand command)
+            throws IOException {
+        StringWriter out = new StringWriter();
+        try {
+            command.emitJson(out);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    @Test
+    public void testForConlet() throws IOException {
+        NotifyConletView template = new NotifyConletView("Type", null,
+            "update", 42, Map.of("key", "value \"quoted\""));
+        for (String conletId : new String[] { "Type~1", "Type~2" }) {
+            assertEquals(json(new NotifyConletView("Type", conletId,
+                "update", 42, Map.of("key", "value \"quoted\""))),
+                json(template.forConlet(conletId)));
+        }
+    }
+
+    @Test
+    public void testStreamedContent() throws IOException {
+        String html = "<div title=\"a\\b\">\n\tx\u0001 \u00e4</div>"
+            + "y".repeat(3000);
+        assertEquals(
+            json(new RenderConlet("Type", "Type~1",
+                CompletableFuture.completedFuture(html))
+                    .setRenderAs(RenderMode.View)),
+            json(new RenderConlet("Type", "Type~1",
+                out -> out.write(html)).setRenderAs(RenderMode.View)));
+    }
+
+    @Test
+    public void testProducedContent()
+            throws IOException, InterruptedException, ExecutionException {
+        AtomicInteger invocations = new AtomicInteger();
+        var render = new RenderConlet("Type", "Type~1", out -> {
+            invocations.incrementAndGet();
+            out.write("<div></div>");
+        });
+        assertEquals("<div></div>", render.content().get());
+        assertEquals("<div></div>", render.content().get());
+        String emitted = json(render);
+        assertEquals(1, invocations.get());
+        assertEquals(json(new RenderConlet("Type", "Type~1",
+            CompletableFuture.completedFuture("<div></div>"))), emitted);
+    }
+}
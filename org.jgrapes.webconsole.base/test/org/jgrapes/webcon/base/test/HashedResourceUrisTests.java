@@ -0,0 +1,89 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webcon.base.test;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.Map;
+import java.util.UUID;
+import org.jgrapes.core.Channel;
+import org.jgrapes.http.events.Request;
+import org.jgrapes.io.IOSubchannel;
+import org.jgrapes.webconsole.base.ConsoleWeblet;
+import org.jgrapes.webconsole.base.RenderSupport;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.Test;
+
+public class HashedResourceUrisTests {
+
+    private static class TestWeblet extends ConsoleWeblet {
+
+        public TestWeblet() {
+            super(Channel.SELF, Channel.SELF, URI.create("/console/"));
+        }
+
+        @Override
+        public String styling() {
+            return "test";
+        }
+
+        @Override
+        protected void renderConsole(Request.In.Get event,
+                IOSubchannel channel, UUID consoleConnectionId) {
+            // Not used
+        }
+
+        public RenderSupport support() {
+            return renderSupport();
+        }
+    }
+
+    @Test
+    public void testModuleImports() throws IOException, TemplateException {
+        var weblet = new TestWeblet();
+        weblet.setUseHashedResourceUris(true);
+        RenderSupport support = weblet.support();
+
+        // As in the console templates
+        Template tpl = new Template("console.ftl.html",
+            new StringReader("import JGConsole from \"${renderSupport"
+                + ".consoleBaseResource('jgconsole.js')}\""),
+            new Configuration(Configuration.VERSION_2_3_26));
+        StringWriter out = new StringWriter();
+        tpl.process(Map.of("renderSupport", support), out);
+
+        // As in the console's and the conlets' modules
+        URI fromConsole = support.consoleResource("b4uiconsole.js")
+            .resolve("../console-base-resource/jgconsole.js");
+        URI fromConlet = support.conletResource("test.Conlet",
+            "Test-functions.js")
+            .resolve("../../console-base-resource/jgconsole.js");
+        assertEquals(fromConsole, fromConlet);
+        assertEquals("import JGConsole from \"" + fromConsole + "\"",
+            out.toString());
+        // Only classic scripts (sent as script resources) are hashed
+        assertFalse(out.toString().contains("_h="));
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webcon.base.test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jgrapes.io.util.ManagedBuffer;
+import org.jgrapes.io.util.ManagedBufferReader;
+import org.jgrapes.webconsole.base.JsonRpcDecoder;
+import org.jgrapes.webconsole.base.WcJsonRpc;
+
+/**
+ * Compares the approach used by the 
+ * {@link org.jgrapes.webconsole.base.WebSocketInputSink}
+ * (a virtual thread per connection that reads from a 
+ * {@link ManagedBufferReader}) with the {@link JsonRpcDecoder}
+ * used by the {@link org.jgrapes.webconsole.base.WebSocketInputDecoder}.
+ * 
+ * The benchmark reports the heap used per idle connection (i.e. 
+ * a connection that has received a message and waits for the next
+ * one) and the number of messages decoded per second on a single
+ * connection. It is not run as part of the tests, invoke 
+ * {@link #main(String[])} instead.
+ */
+@SuppressWarnings({ "PMD.SystemPrintln", "PMD.DoNotUseThreads" })
+public class InputDecodingBenchmark {
+
+    private static final ObjectMapper mapper = JsonMapper.builder()
+        .addModule(new ParameterNamesModule()).addModule(new Jdk8Module())
+        .addModule(new JavaTimeModule()).build();
+    private static final String MESSAGE = "{\"jsonrpc\":\"2.0\","
+        + "\"method\":\"notifyConletModel\",\"params\":"
+        + "[\"org.jgrapes.webconlet.sysinfo.SysInfoConlet~1\","
+        + "\"collectGarbage\",[42,\"value\"]]}";
+    private static final int CONNECTIONS = 10_000;
+    private static final int MESSAGES = 500_000;
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args the arguments
+     * @throws Exception the exception
+     */
+    @SuppressWarnings("PMD.SignatureDeclareThrowsException")
+    public static void main(String[] args) throws Exception {
+        System.out.printf("Bytes per idle connection (thread):    %8d%n",
+            threadIdleMemory());
+        System.out.printf("Bytes per idle connection (decoder):   %8d%n",
+            decoderIdleMemory());
+        // Warm up, then measure
+        threadThroughput();
+        System.out.printf("Messages per second (thread):        %10.0f%n",
+            threadThroughput());
+        decoderThroughput();
+        System.out.printf("Messages per second (decoder):       %10.0f%n",
+            decoderThroughput());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static ManagedBuffer<CharBuffer> message() {
+        return ManagedBuffer.wrap(CharBuffer.wrap(MESSAGE));
+    }
+
+    /**
+     * A reader thread as used by the WebSocketInputSink.
+     */
+    private static Thread startReader(ManagedBufferReader source,
+            Runnable onMessage) {
+        return Thread.ofVirtual().start(() -> {
+            try (JsonParser parser = new JsonFactory().createParser(source)) {
+                while (parser.nextToken() != null) {
+                    mapper.readValue(parser, WcJsonRpc.class);
+                    onMessage.run();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private static long threadIdleMemory() throws Exception {
+        List<ManagedBufferReader> readers = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        CountDownLatch received = new CountDownLatch(CONNECTIONS);
+        long before = usedHeap();
+        for (int i = 0; i < CONNECTIONS; i++) {
+            var reader = new ManagedBufferReader();
+            readers.add(reader);
+            threads.add(startReader(reader, received::countDown));
+            reader.feed(message());
+        }
+        received.await();
+        long perConnection = (usedHeap() - before) / CONNECTIONS;
+        for (var reader : readers) {
+            reader.close();
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        return perConnection;
+    }
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private static long decoderIdleMemory() throws IOException {
+        List<JsonRpcDecoder<WcJsonRpc>> decoders = new ArrayList<>();
+        AtomicInteger received = new AtomicInteger();
+        long before = usedHeap();
+        for (int i = 0; i < CONNECTIONS; i++) {
+            var decoder = new JsonRpcDecoder<>(mapper, WcJsonRpc.class);
+            decoders.add(decoder);
+            decoder.feed(CharBuffer.wrap(MESSAGE),
+                rpc -> received.incrementAndGet());
+        }
+        long perConnection = (usedHeap() - before) / CONNECTIONS;
+        if (received.get() != decoders.size()) {
+            throw new IllegalStateException();
+        }
+        return perConnection;
+    }
+
+    private static double threadThroughput() throws Exception {
+        var reader = new ManagedBufferReader();
+        CountDownLatch received = new CountDownLatch(MESSAGES);
+        long start = System.nanoTime();
+        Thread thread = startReader(reader, received::countDown);
+        for (int i = 0; i < MESSAGES; i++) {
+            reader.feed(message());
+        }
+        received.await();
+        double rate = MESSAGES * 1e9 / (System.nanoTime() - start);
+        reader.close();
+        thread.join();
+        return rate;
+    }
+
+    private static double decoderThroughput() throws IOException {
+        var decoder = new JsonRpcDecoder<>(mapper, WcJsonRpc.class);
+        AtomicInteger received = new AtomicInteger();
+        long start = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            decoder.feed(CharBuffer.wrap(MESSAGE),
+                rpc -> received.incrementAndGet());
+        }
+        double rate = MESSAGES * 1e9 / (System.nanoTime() - start);
+        if (received.get() != MESSAGES) {
+            throw new IllegalStateException();
+        }
+        return rate;
+    }
+}
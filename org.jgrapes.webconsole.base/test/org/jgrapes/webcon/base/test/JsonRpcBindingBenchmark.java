@@ -0,0 +1,190 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webcon.base.test;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.jgrapes.webconsole.base.JsonRpc;
+import org.jgrapes.webconsole.base.WcJsonRpc;
+import org.jgrapes.webconsole.base.WcJsonRpc.ConletInfo;
+
+/**
+ * Compares the deserialization of {@link WcJsonRpc} messages with
+ * the precompiled parameter binding with the former approach
+ * that looked up and constructed the parameter types for every
+ * parameter of every message and copied the parameters on access.
+ *
+ * The benchmark reports the number of messages decoded per second
+ * for `notifyConletModel` and `conletsDeleted`. It is not run as
+ * part of the tests, invoke {@link #main(String[])} instead.
+ */
+@SuppressWarnings("PMD.SystemPrintln")
+public class JsonRpcBindingBenchmark {
+
+    private static final ObjectMapper mapper = JsonMapper.builder()
+        .addModule(new ParameterNamesModule()).addModule(new Jdk8Module())
+        .addModule(new JavaTimeModule()).build();
+    private static final String NOTIFY = "{\"jsonrpc\":\"2.0\","
+        + "\"method\":\"notifyConletModel\",\"params\":"
+        + "[\"org.jgrapes.webconlet.sysinfo.SysInfoConlet~1\","
+        + "\"collectGarbage\",[42,\"value\"]]}";
+    private static final String DELETED = "{\"jsonrpc\":\"2.0\","
+        + "\"method\":\"conletsDeleted\",\"params\":[["
+        + "{\"conletId\":\"org.jgrapes.webconlet.sysinfo.SysInfoConlet~1\","
+        + "\"modes\":[\"Preview\",\"View\"],\"opts\":{}},"
+        + "{\"conletId\":\"org.jgrapes.webconlet.jmxbrowser."
+        + "JmxBrowserConlet~2\",\"modes\":[\"Preview\"],\"opts\":{}}]]}";
+    private static final int MESSAGES = 1_000_000;
+    private static final int ROUNDS = 3;
+    private static final Map<String, List<Type>> LEGACY_TYPES = Map.of(
+        "conletsDeleted", List.of(ConletInfo[].class),
+        "notifyConletModel",
+        List.of(String.class, String.class, Object[].class));
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args the arguments
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void main(String[] args) throws IOException {
+        for (String message : List.of(NOTIFY, DELETED)) {
+            String method = mapper.readValue(message, WcJsonRpc.class)
+                .method();
+            // Warm up, then measure
+            for (int i = 0; i < ROUNDS; i++) {
+                throughput(message, LegacyJsonRpc.class);
+                throughput(message, WcJsonRpc.class);
+            }
+            System.out.printf("%-18s messages per second (legacy):   "
+                + "%10.0f%n", method, throughput(message, LegacyJsonRpc.class));
+            System.out.printf("%-18s messages per second (compiled): "
+                + "%10.0f%n", method, throughput(message, WcJsonRpc.class));
+        }
+    }
+
+    private static double throughput(String message,
+            Class<? extends JsonRpc> type) throws IOException {
+        long start = System.nanoTime();
+        int sum = 0;
+        for (int i = 0; i < MESSAGES; i++) {
+            var rpc = mapper.readValue(message, type);
+            // Access parameters as the WebConsole does
+            sum += rpc.params().length + rpc.params().length;
+        }
+        double rate = MESSAGES * 1e9 / (System.nanoTime() - start);
+        if (sum == 0) {
+            throw new IllegalStateException();
+        }
+        return rate;
+    }
+
+    /**
+     * A {@link JsonRpc} deserialized as before the introduction
+     * of the precompiled binding.
+     */
+    @JsonDeserialize(using = LegacyDeserializer.class)
+    public static class LegacyJsonRpc extends JsonRpc {
+
+        private String method;
+
+        @Override
+        public String method() {
+            return method;
+        }
+
+        @Override
+        public Object[] params() {
+            return super.params().clone();
+        }
+    }
+
+    /**
+     * The former parameter handling.
+     */
+    public static class LegacyDeserializer
+            extends JsonDeserializer<LegacyJsonRpc> {
+
+        @Override
+        public LegacyJsonRpc deserialize(JsonParser parser,
+                DeserializationContext ctx) throws IOException {
+            String method = null;
+            List<Object> params = Collections.emptyList();
+            while (true) {
+                var token = parser.nextToken();
+                if (token == null || token == JsonToken.END_OBJECT) {
+                    break;
+                }
+                var key = parser.getValueAsString();
+                parser.nextToken();
+                switch (key) {
+                case "method":
+                    method = ctx.readValue(parser, String.class);
+                    break;
+                case "params":
+                    params = handleParams(parser, ctx, method);
+                    break;
+                default:
+                    ctx.readTree(parser);
+                    break;
+                }
+            }
+            LegacyJsonRpc rpc;
+            try {
+                rpc = LegacyJsonRpc.class.getDeclaredConstructor()
+                    .newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IOException(e);
+            }
+            rpc.method = method;
+            rpc.setParams(params.toArray());
+            return rpc;
+        }
+
+        private List<Object> handleParams(JsonParser parser,
+                DeserializationContext ctx, String method)
+                throws IOException {
+            List<Object> params = new ArrayList<>();
+            var typeIter = Optional.ofNullable(LEGACY_TYPES.get(method))
+                .map(List::iterator).orElse(Collections.emptyIterator());
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                Type paramType = typeIter.hasNext() ? typeIter.next()
+                    : ctx.getTypeFactory().constructType(Object.class);
+                params.add(ctx.readValue(parser,
+                    ctx.getTypeFactory().constructType(paramType)));
+            }
+            return params;
+        }
+    }
+}
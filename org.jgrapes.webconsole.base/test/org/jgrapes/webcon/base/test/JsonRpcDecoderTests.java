@@ -0,0 +1,73 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webcon.base.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.jgrapes.webconsole.base.JsonRpcDecoder;
+import org.jgrapes.webconsole.base.WcJsonRpc;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class JsonRpcDecoderTests {
+
+    private static final ObjectMapper mapper = JsonMapper.builder()
+        .addModule(new ParameterNamesModule()).addModule(new Jdk8Module())
+        .addModule(new JavaTimeModule()).build();
+
+    @Test
+    public void testChunked() throws IOException {
+        String json = "{\"jsonrpc\":\"2.0\",\"method\":\"renderConlet\","
+            + "\"params\":[\"test~1\",[\"Preview\",\"View\"]]}"
+            + "{\"jsonrpc\":\"2.0\",\"method\":\"keepAlive\",\"params\":[]}";
+        var decoder = new JsonRpcDecoder<>(mapper, WcJsonRpc.class);
+        List<WcJsonRpc> result = new ArrayList<>();
+        for (int i = 0; i < json.length(); i += 7) {
+            decoder.feed(CharBuffer.wrap(json, i,
+                Math.min(i + 7, json.length())), result::add);
+        }
+        decoder.close(result::add);
+        assertEquals(2, result.size());
+        assertEquals("renderConlet", result.get(0).method());
+        assertEquals("test~1", result.get(0).param(0));
+        assertEquals(String[].class, result.get(0).params()[1].getClass());
+        assertEquals("keepAlive", result.get(1).method());
+    }
+
+    @Test
+    public void testSplitSurrogate() throws IOException {
+        String json = "{\"jsonrpc\":\"2.0\",\"method\":\"setTheme\","
+            + "\"params\":[\"😀\"]}";
+        int split = json.indexOf('\uD83D') + 1;
+        var decoder = new JsonRpcDecoder<>(mapper, WcJsonRpc.class);
+        List<WcJsonRpc> result = new ArrayList<>();
+        decoder.feed(CharBuffer.wrap(json, 0, split), result::add);
+        decoder.feed(CharBuffer.wrap(json, split, json.length()),
+            result::add);
+        assertEquals(1, result.size());
+        assertEquals("😀", result.get(0).param(0));
+    }
+}
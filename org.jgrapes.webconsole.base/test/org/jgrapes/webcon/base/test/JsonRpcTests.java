@@ -35,8 +35,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.jgrapes.webconsole.base.JsonRpc;
+import org.jgrapes.webconsole.base.WcJsonRpc;
+import org.jgrapes.webconsole.base.WcJsonRpc.ConletInfo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import org.junit.Test;
 
 public class JsonRpcTests {
@@ -110,4 +113,48 @@ public class JsonRpcTests {
         assertEquals("{\"jsonrpc\":\"2.0\",\"method\":\"call1\","
             + "\"params\":[1,\"hello\",{\"value\":42}]}", json);
     }
+
+    @Test
+    public void testParams() {
+        JsonRpc rpc = new JsonRpc("call1");
+        for (int i = 0; i < 5; i++) {
+            rpc.addParam(i);
+        }
+        assertEquals(5, rpc.paramCount());
+        assertEquals(5, rpc.params().length);
+        assertEquals(4, (int) rpc.param(4));
+        assertEquals("none", rpc.param(5, "none"));
+        Object[] params = { 1, 2 };
+        rpc.setParams(params);
+        params[0] = 42;
+        assertEquals(1, (int) rpc.param(0));
+        rpc.addParam(3);
+        assertEquals(3, rpc.params().length);
+    }
+
+    @Test
+    public void testBinding() throws JsonProcessingException {
+        ObjectMapper mapper = JsonMapper.builder()
+            .addModule(new ParameterNamesModule()).addModule(new Jdk8Module())
+            .addModule(new JavaTimeModule()).build();
+        var rpc = mapper.readValue("{\"jsonrpc\":\"2.0\","
+            + "\"method\":\"conletsDeleted\",\"params\":[[{\"conletId\":"
+            + "\"test~1\",\"modes\":[\"Preview\"],\"opts\":null}]]}",
+            WcJsonRpc.class);
+        assertEquals(1, rpc.paramCount());
+        ConletInfo[] infos = rpc.param(0);
+        assertEquals("test~1", infos[0].conletId());
+        assertEquals(List.of("Preview"), infos[0].modes());
+        assertNull(infos[0].opts());
+
+        // Parameters beyond the registered ones are untyped
+        rpc = mapper.readValue("{\"jsonrpc\":\"2.0\","
+            + "\"method\":\"notifyConletModel\",\"params\":"
+            + "[\"test~1\",null,[42],{\"a\":1}]}", WcJsonRpc.class);
+        assertEquals(4, rpc.paramCount());
+        assertNull(rpc.param(1));
+        assertEquals(Object[].class, rpc.params()[2].getClass());
+        assertEquals(Map.of("a", 1), rpc.param(3));
+        assertEquals("none", rpc.param(4, "none"));
+    }
 }
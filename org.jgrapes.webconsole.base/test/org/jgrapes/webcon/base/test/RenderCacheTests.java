@@ -0,0 +1,97 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webcon.base.test;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Optional;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import org.jgrapes.webconsole.base.freemarker.RenderCache;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class RenderCacheTests {
+
+    private static Template template(String name) throws IOException {
+        return new Template(name, new StringReader("${x}"),
+            new Configuration(Configuration.VERSION_2_3_26));
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        var cache = new RenderCache("test-lookup", 1000);
+        var tpl = template("test.ftl.html");
+        assertEquals(Optional.empty(), cache.get(tpl, Locale.ENGLISH, 1));
+        cache.put(tpl, Locale.ENGLISH, 1, "one");
+        assertEquals(Optional.of("one"), cache.get(tpl, Locale.ENGLISH, 1));
+        assertEquals(Optional.empty(), cache.get(tpl, Locale.GERMAN, 1));
+        assertEquals(Optional.empty(), cache.get(tpl, Locale.ENGLISH, 2));
+        assertEquals(1, cache.hits());
+        assertEquals(3, cache.misses());
+
+        // Reloaded template invalidates entry
+        assertEquals(Optional.empty(),
+            cache.get(template("test.ftl.html"), Locale.ENGLISH, 1));
+        assertEquals(0, cache.entries());
+        cache.close();
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        var cache = new RenderCache("test-eviction", 100);
+        var tpl = template("test.ftl.html");
+        for (int i = 0; i < 5; i++) {
+            cache.put(tpl, Locale.ENGLISH, i, "x".repeat(25));
+        }
+        assertEquals(4, cache.entries());
+        assertEquals(100, cache.size());
+        assertEquals(1, cache.evictions());
+        assertEquals(Optional.empty(), cache.get(tpl, Locale.ENGLISH, 0));
+
+        // Too large
+        cache.put(tpl, Locale.ENGLISH, 5, "x".repeat(26));
+        assertEquals(Optional.empty(), cache.get(tpl, Locale.ENGLISH, 5));
+        cache.close();
+    }
+
+    private static int registered(String name)
+            throws MalformedObjectNameException {
+        return ManagementFactory.getPlatformMBeanServer().queryNames(
+            new ObjectName("org.jgrapes.webconsole:type=RenderCache,*"),
+            null).stream().filter(on -> ObjectName.unquote(
+                on.getKeyProperty("name")).startsWith(name + " ("))
+            .toList().size();
+    }
+
+    @Test
+    public void testMBeans() throws MalformedObjectNameException {
+        var first = new RenderCache("test-mbeans", 100);
+        var second = new RenderCache("test-mbeans", 100);
+        assertEquals(2, registered("test-mbeans"));
+        first.close();
+        assertEquals(1, registered("test-mbeans"));
+        second.close();
+        assertEquals(0, registered("test-mbeans"));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webcon.base.test;
+
+import org.jgrapes.webconsole.base.TrafficMetrics;
+import org.jgrapes.webconsole.base.WcJsonRpc;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class TrafficMetricsTests {
+
+    @Test
+    public void testHistogram() {
+        var histogram = new TrafficMetrics.Histogram(4);
+        histogram.record(-1);
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(3);
+        histogram.record(4);
+        histogram.record(1000);
+        assertArrayEquals(new long[] { 1, 2, 4, Long.MAX_VALUE },
+            histogram.bounds());
+        assertArrayEquals(new long[] { 2, 1, 1, 2 }, histogram.counts());
+    }
+
+    @Test
+    public void testAggregation() {
+        var console = new TrafficMetrics();
+        var conn1 = new TrafficMetrics(console);
+        var conn2 = new TrafficMetrics(console);
+        conn1.recordRequest("renderConlet");
+        conn2.recordRequest("renderConlet");
+        conn2.recordRequest("keepAlive");
+        conn1.recordOutput(3, 100);
+        conn2.recordInput(50);
+        assertEquals(1, conn1.messagesIn());
+        assertEquals(3, console.messagesIn());
+        assertEquals(2, (long) console.methodCounts().get("renderConlet"));
+        assertEquals(1, (long) conn2.methodCounts().get("keepAlive"));
+        assertEquals(3, console.commandsOut());
+        assertEquals(100, console.charsOut());
+        assertEquals(0, conn2.charsOut());
+        assertEquals(50, console.charsIn());
+    }
+
+    @Test
+    public void testHistograms() {
+        var console = new TrafficMetrics();
+        var conn = new TrafficMetrics(console);
+        conn.recordOutput(1, 100);
+        conn.recordQueueDepth(3);
+        assertNull(conn.outboundSizes());
+        assertNull(conn.queueDepths());
+        assertEquals(100, conn.charsOut());
+        assertEquals(1, console.outboundSizes().counts()[7]);
+        assertEquals(1, console.queueDepths().counts()[2]);
+    }
+
+    @Test
+    public void testKnownMethods() {
+        var metrics = new TrafficMetrics();
+        metrics.recordRequest(WcJsonRpc.knownMethod("renderConlet"));
+        metrics.recordRequest(WcJsonRpc.knownMethod("keepAlive"));
+        metrics.recordRequest(WcJsonRpc.knownMethod("x1"));
+        metrics.recordRequest(WcJsonRpc.knownMethod("x2"));
+        metrics.recordRequest(WcJsonRpc.knownMethod(null));
+        assertEquals(3, metrics.methodCounts().size());
+        assertEquals(3, (long) metrics.methodCounts().get("other"));
+        assertEquals(1, (long) metrics.methodCounts().get("renderConlet"));
+    }
+}
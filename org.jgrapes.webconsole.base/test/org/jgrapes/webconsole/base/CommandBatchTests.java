@@ -0,0 +1,161 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import org.jgrapes.core.Channel;
+import org.jgrapes.io.IOSubchannel;
+import org.jgrapes.io.util.CharBufferWriter;
+import org.jgrapes.webconsole.base.ConsoleWeblet.FlushCommands;
+import org.jgrapes.webconsole.base.events.SimpleConsoleCommand;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommandBatchTests {
+
+    private ConsoleConnection connection;
+    private CommandBatch batch;
+    private IOSubchannel upstream;
+
+    @Before
+    public void setUp() {
+        connection = ConsoleConnection.lookupOrCreate(
+            UUID.randomUUID().toString(), new WebConsole(Channel.SELF),
+            Set.of(Locale.ENGLISH), 60_000);
+        batch = new CommandBatch(connection);
+        batch.setReplayLimit(1000);
+        upstream = new IOSubchannel() {
+            @Override
+            public Object defaultCriterion() {
+                return this;
+            }
+
+            @Override
+            public boolean isEligibleFor(Object criterion) {
+                return false;
+            }
+        };
+        CharBufferWriter.SENT.clear();
+    }
+
+    @After
+    public void tearDown() {
+        batch.close();
+        connection.close();
+    }
+
+    private void send(String... methods)
+            throws InterruptedException, IOException {
+        for (String method : methods) {
+            batch.add(new SimpleConsoleCommand(method));
+        }
+        batch.flush(upstream);
+    }
+
+    private static String rpc(String method) {
+        return "{\"jsonrpc\":\"2.0\",\"method\":\"" + method
+            + "\",\"params\":[]}";
+    }
+
+    @Test
+    public void testFlush() throws InterruptedException, IOException {
+        send("a");
+        send("b", "c");
+        assertEquals(List.of(rpc("a"),
+            "[" + rpc("b") + "," + rpc("c") + "]"), CharBufferWriter.SENT);
+        assertEquals(0, batch.size());
+    }
+
+    @Test
+    public void testResumeWithReplay()
+            throws InterruptedException, IOException {
+        send("a");
+        send("b");
+        batch.awaitResume();
+        send("c");
+        assertEquals(2, CharBufferWriter.SENT.size());
+        CharBufferWriter.SENT.clear();
+        batch.resume(1, upstream);
+        assertEquals(List.of("[" + rpc("b") + "]", rpc("c")),
+            CharBufferWriter.SENT);
+    }
+
+    @Test
+    public void testResumeUpToDate()
+            throws InterruptedException, IOException {
+        send("a");
+        batch.awaitResume();
+        send("b");
+        CharBufferWriter.SENT.clear();
+        batch.resume(1, upstream);
+        assertEquals(List.of(rpc("b")), CharBufferWriter.SENT);
+    }
+
+    @Test
+    public void testResumeWithResync()
+            throws InterruptedException, IOException {
+        send("a");
+        send("b");
+        batch.awaitResume();
+        CharBufferWriter.SENT.clear();
+        batch.resume(-1, upstream);
+        assertEquals(List.of("{\"jsonrpc\":\"2.0\",\"method\":\"resync\","
+            + "\"params\":[2]}"), CharBufferWriter.SENT);
+    }
+
+    @Test
+    public void testResumeWithoutReplay()
+            throws InterruptedException, IOException {
+        batch.setReplayLimit(0);
+        send("a");
+        send("b");
+        batch.awaitResume();
+        CharBufferWriter.SENT.clear();
+        batch.resume(1, upstream);
+        assertEquals(List.of("{\"jsonrpc\":\"2.0\",\"method\":\"resync\","
+            + "\"params\":[2]}"), CharBufferWriter.SENT);
+        CharBufferWriter.SENT.clear();
+        batch.resume(2, upstream);
+        assertTrue(CharBufferWriter.SENT.isEmpty());
+    }
+
+    @Test
+    public void testHold() throws InterruptedException, IOException {
+        batch.hold(Duration.ofMinutes(1));
+        assertTrue(batch.isHeld());
+        batch.add(new SimpleConsoleCommand("a"));
+        batch.flushScheduled(upstream);
+        assertTrue(CharBufferWriter.SENT.isEmpty());
+        ConsoleConnection.FIRED.clear();
+        batch.release();
+        assertFalse(batch.isHeld());
+        assertTrue(ConsoleConnection.FIRED.get(0)[0] instanceof FlushCommands);
+        batch.flushScheduled(upstream);
+        assertEquals(List.of(rpc("a")), CharBufferWriter.SENT);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.jgrapes.core.Channel;
+import org.jgrapes.core.Event;
+import org.jgrapes.webconsole.base.ConsoleWeblet.QueueOverflowPolicy;
+import org.jgrapes.webconsole.base.events.ConsoleCommand;
+import org.jgrapes.webconsole.base.events.NotifyConletView;
+import org.jgrapes.webconsole.base.events.SimpleConsoleCommand;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommandQueueTests {
+
+    private ConsoleConnection connection;
+    private CommandQueue queue;
+
+    @Before
+    public void setUp() {
+        connection = ConsoleConnection.lookupOrCreate(
+            UUID.randomUUID().toString(), new WebConsole(Channel.SELF),
+            Set.of(Locale.ENGLISH), 60_000);
+        queue = connection.commandQueue();
+    }
+
+    @After
+    public void tearDown() {
+        connection.close();
+    }
+
+    @Test
+    public void testAdmitAndTake() {
+        queue.configure(2, Map.of());
+        var first = new SimpleConsoleCommand("first");
+        var second = new SimpleConsoleCommand("second");
+        queue.fire(first);
+        queue.fire(second);
+        assertEquals(2, queue.depth());
+        assertTrue(queue.take(first));
+        assertEquals(1, queue.depth());
+        assertTrue(queue.take(second));
+        assertEquals(0, queue.depth());
+        assertEquals(0, queue.droppedCount());
+    }
+
+    @Test
+    public void testDropOldest() {
+        queue.configure(2, Map.of(SimpleConsoleCommand.class,
+            QueueOverflowPolicy.DROP_OLDEST));
+        var commands = new ConsoleCommand[3];
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = new SimpleConsoleCommand("cmd" + i);
+            queue.fire(commands[i]);
+        }
+        assertEquals(2, queue.depth());
+        assertEquals(1, queue.droppedCount());
+        assertFalse(queue.take(commands[0]));
+        assertTrue(queue.take(commands[1]));
+        assertTrue(queue.take(commands[2]));
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    public void testLatestWins() {
+        queue.configure(2, Map.of(NotifyConletView.class,
+            QueueOverflowPolicy.LATEST_WINS));
+        var first = new NotifyConletView("type", "a", "update", 1);
+        var other = new NotifyConletView("type", "b", "update", 1);
+        var latest = new NotifyConletView("type", "a", "update", 2);
+        queue.fire(first);
+        queue.fire(other);
+        queue.fire(latest);
+        assertEquals(2, queue.depth());
+        assertFalse(queue.take(first));
+        assertTrue(queue.take(other));
+        assertTrue(queue.take(latest));
+    }
+
+    @Test
+    public void testCoalesce() {
+        queue.configure(0, Map.of());
+        var first = new NotifyConletView("type", "a", "update", 1)
+            .setCoalescingKey("");
+        var other = new NotifyConletView("type", "b", "update", 1)
+            .setCoalescingKey("");
+        var latest = new NotifyConletView("type", "a", "update", 2)
+            .setCoalescingKey("");
+        queue.fire(first);
+        queue.fire(other);
+        queue.fire(latest);
+        assertEquals(2, queue.depth());
+        assertEquals(1, queue.coalescedCount());
+        assertFalse(queue.take(first));
+        assertEquals(2, queue.depth());
+        assertTrue(queue.take(other));
+        assertTrue(queue.take(latest));
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    public void testCoalescingKeyOfTemplate() {
+        var template = new NotifyConletView("type", null, "update", 1)
+            .setCoalescingKey("");
+        assertTrue(template.coalescingKey().isPresent());
+        assertEquals(template.forConlet("a").coalescingKey(),
+            new NotifyConletView("type", "a", "update", 2)
+                .setCoalescingKey("").coalescingKey());
+    }
+
+    @Test
+    public void testDisconnectIsDefault() {
+        queue.configure(1, Map.of());
+        var first = new SimpleConsoleCommand("first");
+        var second = new SimpleConsoleCommand("second");
+        queue.fire(first);
+        queue.fire(second);
+        assertFalse(connection.isOpen());
+        assertEquals(0, queue.depth());
+        assertEquals(2, queue.droppedCount());
+        assertFalse(queue.take(first));
+    }
+
+    @Test
+    public void testBlock() throws InterruptedException {
+        queue.configure(1, Map.of(ConsoleCommand.class,
+            QueueOverflowPolicy.BLOCK));
+        var first = new SimpleConsoleCommand("first");
+        var second = new SimpleConsoleCommand("second");
+        queue.fire(first);
+        Thread sender = new Thread(() -> queue.fire(second));
+        sender.start();
+        sender.join(200);
+        assertTrue(sender.isAlive());
+        assertTrue(queue.take(first));
+        sender.join(5000);
+        assertFalse(sender.isAlive());
+        assertEquals(1, queue.depth());
+        assertTrue(queue.take(second));
+    }
+
+    @Test
+    public void testResponsesNotLimited() {
+        queue.configure(1, Map.of());
+        var request = new Event<Void>() {
+        };
+        request.setChannels(connection);
+        CommandQueue.handling(request);
+        try {
+            for (int i = 0; i < 3; i++) {
+                queue.fire(new SimpleConsoleCommand("cmd" + i));
+            }
+        } finally {
+            CommandQueue.handling(null);
+        }
+        assertTrue(connection.isOpen());
+        assertEquals(3, queue.depth());
+        assertEquals(0, queue.droppedCount());
+
+        // Other senders are still limited
+        queue.fire(new SimpleConsoleCommand("other"));
+        assertFalse(connection.isOpen());
+    }
+}
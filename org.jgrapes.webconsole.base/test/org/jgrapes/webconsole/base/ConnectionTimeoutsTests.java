@@ -0,0 +1,105 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import org.jgrapes.core.Channel;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConnectionTimeoutsTests {
+
+    private WebConsole console;
+    private ConsoleConnection connection;
+
+    @Before
+    public void setUp() {
+        console = new WebConsole(Channel.SELF);
+    }
+
+    @After
+    public void tearDown() {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    private ConsoleConnection connect(long timeout) {
+        connection = ConsoleConnection.lookupOrCreate(
+            UUID.randomUUID().toString(), console, Set.of(Locale.ENGLISH),
+            timeout);
+        return connection;
+    }
+
+    private static boolean closesWithin(ConsoleConnection connection,
+            long millis) throws InterruptedException {
+        long end = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < end) {
+            if (!connection.isOpen()) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return !connection.isOpen();
+    }
+
+    @Test
+    public void testExpiry() throws InterruptedException {
+        long started = System.currentTimeMillis();
+        connect(500);
+        // May expire up to one tick (1s) later than configured
+        assertTrue(closesWithin(connection, 3000));
+        assertTrue(System.currentTimeMillis() - started >= 500);
+    }
+
+    @Test
+    public void testRefresh() throws InterruptedException {
+        connect(1500);
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(300);
+            assertTrue(connection.isOpen());
+            connection.refresh();
+        }
+        assertTrue(closesWithin(connection, 4000));
+    }
+
+    @Test
+    public void testReducedTimeout() throws InterruptedException {
+        connect(60_000);
+        assertFalse(closesWithin(connection, 1200));
+        connection.setTimeout(500);
+        assertTrue(closesWithin(connection, 3000));
+    }
+
+    @Test
+    public void testClosedIsDropped() throws InterruptedException {
+        var closed = connect(500);
+        closed.close();
+        var other = connect(60_000);
+        // Wheel keeps running for the other connection, the closed
+        // one is dropped when its slot is processed
+        assertFalse(closesWithin(other, 2500));
+        assertFalse(closed.isOpen());
+    }
+}
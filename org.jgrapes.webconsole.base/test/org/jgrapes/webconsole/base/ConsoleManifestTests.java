@@ -0,0 +1,107 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.jgrapes.webconsole.base.Conlet.RenderMode;
+import org.jgrapes.webconsole.base.events.AddConletType;
+import org.jgrapes.webconsole.base.events.AddPageResources;
+import org.jgrapes.webconsole.base.events.AddPageResources.ScriptResource;
+import org.jgrapes.webconsole.base.events.ConsoleCommand;
+import org.jgrapes.webconsole.base.events.SimpleConsoleCommand;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ConsoleManifestTests {
+
+    private static AddConletType conletType(String displayName) {
+        return new AddConletType("test.Conlet")
+            .setDisplayNames(Map.of(Locale.ENGLISH, displayName))
+            .addRenderMode(RenderMode.Preview);
+    }
+
+    private static AddPageResources inlineScript(String source) {
+        return new AddPageResources().addScriptResource(
+            new ScriptResource().setProvides("feature")
+                .setScriptSource(source));
+    }
+
+    private static String hash(ConsoleCommand command)
+            throws IOException, InterruptedException {
+        return ConsoleManifest.of(List.of(command)).hash();
+    }
+
+    @Test
+    public void testHash() throws IOException, InterruptedException {
+        assertEquals(hash(conletType("Test")), hash(conletType("Test")));
+        assertNotEquals(hash(conletType("Test")), hash(conletType("Other")));
+        assertNotEquals(
+            hash(conletType("Test").addRenderMode(RenderMode.View)),
+            hash(conletType("Test")));
+        assertNotEquals(hash(inlineScript("a();")),
+            hash(inlineScript("b();")));
+        assertNotEquals(
+            hash(new AddPageResources().addCss(URI.create("a.css"))),
+            hash(new AddPageResources().addCss(URI.create("b.css"))));
+    }
+
+    private static String json(ConsoleCommand command)
+            throws IOException, InterruptedException {
+        StringWriter out = new StringWriter();
+        command.emitJson(out);
+        return out.toString();
+    }
+
+    @Test
+    public void testCommand() throws IOException, InterruptedException {
+        var manifest = ConsoleManifest.of(List.of(conletType("Test")));
+        assertEquals(ConsoleManifest.of(List.of(conletType("Test"))).hash(),
+            manifest.hash());
+        assertTrue(json(manifest.command(null)).contains("test.Conlet"));
+        String known = json(manifest.command(manifest.hash()));
+        assertTrue(known.contains(manifest.hash()));
+        assertFalse(known.contains("test.Conlet"));
+    }
+
+    @Test
+    public void testCollector() {
+        var collector = new ConsoleManifest.Collector();
+        ConsoleCommand other = new SimpleConsoleCommand("other");
+        assertFalse(collector.offer(conletType("Test")));
+        collector.start(0);
+        assertTrue(collector.isCollecting());
+        assertTrue(collector.offer(conletType("Test")));
+        assertTrue(collector.offer(inlineScript("a();")));
+        assertFalse(collector.offer(other));
+        List<ConsoleCommand> collected = collector.finish();
+        assertFalse(collector.isCollecting());
+        assertEquals(2, collected.size());
+        assertFalse(collector.offer(conletType("Test")));
+        collector.start(0);
+        assertTrue(collector.finish().isEmpty());
+    }
+}
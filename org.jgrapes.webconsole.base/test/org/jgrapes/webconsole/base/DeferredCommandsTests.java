@@ -0,0 +1,162 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.jgrapes.core.Channel;
+import org.jgrapes.webconsole.base.ConsoleWeblet.SendDeferredCommands;
+import org.jgrapes.webconsole.base.events.ConsoleCommand;
+import org.jgrapes.webconsole.base.events.NotifyConletView;
+import org.jgrapes.webconsole.base.events.OpenModalDialog;
+import org.jgrapes.webconsole.base.events.RenderConlet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeferredCommandsTests {
+
+    private ConsoleConnection connection;
+    private DeferredCommands deferred;
+
+    @Before
+    public void setUp() {
+        connection = ConsoleConnection.lookupOrCreate(
+            UUID.randomUUID().toString(), new WebConsole(Channel.SELF),
+            Set.of(Locale.ENGLISH), 60_000);
+        deferred = new DeferredCommands(connection);
+        ConsoleConnection.FIRED.clear();
+    }
+
+    @After
+    public void tearDown() {
+        deferred.close();
+        connection.close();
+    }
+
+    private static SendDeferredCommands awaitFired(int count)
+            throws InterruptedException {
+        for (int i = 0; i < 200
+            && ConsoleConnection.FIRED.size() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, ConsoleConnection.FIRED.size());
+        return (SendDeferredCommands) ConsoleConnection.FIRED
+            .get(count - 1)[0];
+    }
+
+    @Test
+    public void testOrdering() throws InterruptedException {
+        CompletableFuture<String> content = new CompletableFuture<>();
+        RenderConlet render = new RenderConlet("Type", "Type~1", content);
+        ConsoleCommand notify
+            = new NotifyConletView("Type", "Type~1", "update");
+        ConsoleCommand open = new OpenModalDialog("Type", "Type~1",
+            CompletableFuture.completedFuture("<div></div>"));
+        assertTrue(deferred.defer(render));
+        assertTrue(deferred.defer(notify));
+        assertFalse(deferred.defer(
+            new NotifyConletView("Type", "Type~2", "update")));
+        assertTrue(deferred.defer(open));
+        assertTrue(ConsoleConnection.FIRED.isEmpty());
+
+        content.complete("<div></div>");
+        SendDeferredCommands event = awaitFired(1);
+        assertSame(render, event.render());
+        assertFalse(event.timedOut());
+        assertEquals(List.of(render, notify, open),
+            deferred.release(render, false));
+        assertFalse(deferred.defer(notify));
+    }
+
+    @Test
+    public void testRestoreOrder() {
+        RenderConlet first = new RenderConlet("Type", "Type~1",
+            CompletableFuture.completedFuture("<div></div>"));
+        RenderConlet second = new RenderConlet("Type", "Type~2",
+            CompletableFuture.completedFuture("<div></div>"));
+        deferred.restore(List.of("Type~1", "Type~2"), true);
+        assertTrue(deferred.defer(second));
+        assertFalse(deferred.defer(first));
+        assertEquals(List.of(second), deferred.completed("Type~1"));
+        assertEquals(List.of(), deferred.completed("Type~2"));
+    }
+
+    @Test
+    public void testTimeout()
+            throws InterruptedException, ExecutionException {
+        deferred.configure(Duration.ofMillis(50), "<p></p>");
+        CompletableFuture<String> content = new CompletableFuture<>();
+        RenderConlet render = new RenderConlet("Type", "Type~1", content);
+        assertTrue(deferred.defer(render));
+        SendDeferredCommands event = awaitFired(1);
+        assertSame(render, event.render());
+        assertTrue(event.timedOut());
+        List<ConsoleCommand> released = deferred.release(render, true);
+        assertEquals(1, released.size());
+        assertEquals("<p></p>",
+            ((RenderConlet) released.get(0)).content().get());
+
+        // Actual content is sent when available
+        content.complete("<div></div>");
+        event = awaitFired(2);
+        assertSame(render, event.render());
+        assertFalse(event.timedOut());
+        assertEquals(List.of(render), deferred.release(render, false));
+    }
+
+    @Test
+    public void testSupersededFollowUp() throws InterruptedException {
+        deferred.configure(Duration.ofMillis(50), "<p></p>");
+        CompletableFuture<String> content = new CompletableFuture<>();
+        RenderConlet render = new RenderConlet("Type", "Type~1", content);
+        assertTrue(deferred.defer(render));
+        awaitFired(1);
+        assertEquals(1, deferred.release(render, true).size());
+
+        // Newer rendering makes the follow-up obsolete
+        assertFalse(deferred.defer(new RenderConlet("Type", "Type~1",
+            CompletableFuture.completedFuture("<div>new</div>"))));
+        content.complete("<div></div>");
+        awaitFired(2);
+        assertTrue(deferred.release(render, false).isEmpty());
+    }
+
+    @Test
+    public void testClose() {
+        CompletableFuture<String> content = new CompletableFuture<>();
+        RenderConlet render = new RenderConlet("Type", "Type~1", content);
+        assertTrue(deferred.defer(render));
+        deferred.close();
+        content.complete("<div></div>");
+        assertTrue(ConsoleConnection.FIRED.isEmpty());
+        assertTrue(deferred.release(render, false).isEmpty());
+        assertFalse(deferred.defer(
+            new NotifyConletView("Type", "Type~1", "update")));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ReplayBufferTests {
+
+    private static String replay(ReplayBuffer buffer, long from)
+            throws IOException {
+        StringWriter out = new StringWriter();
+        buffer.replay(from, out);
+        return out.toString();
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        var buffer = new ReplayBuffer();
+        buffer.setLimit(100);
+        buffer.add(1, "{\"a\":1}");
+        buffer.add(2, "{\"b\":1},{\"b\":2}");
+        buffer.add(1, "{\"c\":1}");
+        assertEquals(4, buffer.sent());
+        assertTrue(buffer.canReplay(0));
+        assertTrue(buffer.canReplay(1));
+        assertTrue(buffer.canReplay(4));
+        // Not the start of a message
+        assertFalse(buffer.canReplay(2));
+        assertFalse(buffer.canReplay(5));
+        assertEquals("[{\"a\":1},{\"b\":1},{\"b\":2},{\"c\":1}]",
+            replay(buffer, 0));
+        assertEquals("[{\"c\":1}]", replay(buffer, 3));
+        assertEquals("", replay(buffer, 4));
+    }
+
+    @Test
+    public void testLimit() throws IOException {
+        var buffer = new ReplayBuffer();
+        buffer.setLimit(16);
+        buffer.add(1, "{\"a\":1}");
+        buffer.add(1, "{\"b\":1}");
+        buffer.add(1, "{\"c\":1}");
+        // Oldest entry trimmed
+        assertFalse(buffer.canReplay(0));
+        assertEquals("[{\"b\":1},{\"c\":1}]", replay(buffer, 1));
+        // Too large, nothing before can be replayed
+        buffer.add(1, "{\"d\":\"0123456789\"}");
+        assertFalse(buffer.canReplay(1));
+        assertFalse(buffer.canReplay(3));
+        assertTrue(buffer.canReplay(4));
+    }
+
+    @Test
+    public void testDisabled() {
+        var buffer = new ReplayBuffer();
+        buffer.add(1, "{\"a\":1}");
+        assertEquals(1, buffer.sent());
+        assertFalse(buffer.canReplay(0));
+        assertTrue(buffer.canReplay(1));
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * JGrapes Event Driven Framework
+ * Copyright (C) 2024 Michael N. Lipp
+ * 
+ * This program is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU Affero General Public License as published by 
+ * the Free Software Foundation; either version 3 of the License, or 
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License 
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License along 
+ * with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jgrapes.webconsole.base;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.jgrapes.webconsole.base.events.AddPageResources.ScriptResource;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ResourceHashesTests {
+
+    @Test
+    public void testScriptResources() throws IOException {
+        Path file = Files.createTempFile("script", ".js");
+        try {
+            Files.writeString(file, "init();");
+            ResourceCache.record("/test/classic.js", file.toUri().toURL());
+            ResourceCache.record("/test/module.js", file.toUri().toURL());
+
+            // Classic scripts get the hash, but only once
+            var classic = new ScriptResource()
+                .setScriptUri(URI.create("/test/classic.js"));
+            ResourceHashes.addRecordedHash(classic);
+            URI hashed = classic.scriptUri();
+            assertTrue(ResourceHashes.fromUri(hashed).isPresent());
+            ResourceHashes.addRecordedHash(classic);
+            assertEquals(hashed, classic.scriptUri());
+
+            // Modules don't
+            var module = new ScriptResource().setScriptType("module")
+                .setScriptUri(URI.create("/test/module.js"));
+            ResourceHashes.addRecordedHash(module);
+            assertEquals(URI.create("/test/module.js"), module.scriptUri());
+
+            // Unknown hash
+            var unknown = new ScriptResource()
+                .setScriptUri(URI.create("/test/unknown.js"));
+            ResourceHashes.addRecordedHash(unknown);
+            assertEquals(URI.create("/test/unknown.js"), unknown.scriptUri());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -30,7 +30,6 @@ import java.util.stream.StreamSupport;
 import org.jgrapes.core.Channel;
 import org.jgrapes.core.annotation.Handler;
 import org.jgrapes.http.ResourcePattern;
-import org.jgrapes.http.ResponseCreationSupport;
 import org.jgrapes.http.Session;
 import org.jgrapes.http.events.Request;
 import org.jgrapes.http.events.Response;
@@ -38,6 +37,7 @@ import org.jgrapes.io.IOSubchannel;
 import org.jgrapes.util.events.KeyValueStoreUpdate;
 import org.jgrapes.webconsole.base.ConsoleConnection;
 import org.jgrapes.webconsole.base.ConsoleUser;
+import org.jgrapes.webconsole.base.ResourceCache;
 import org.jgrapes.webconsole.base.ResourceNotFoundException;
 import org.jgrapes.webconsole.base.WebConsole;
 import org.jgrapes.webconsole.base.WebConsoleUtils;
@@ -163,9 +163,7 @@ public class JQueryUiWeblet extends FreeMarkerConsoleWeblet {
                 }
             }
         }
-        final URL resUrl = resourceUrl;
-        ResponseCreationSupport.sendStaticContent(event, channel,
-            path -> resUrl, null);
+        ResourceCache.send(event, channel, resourceUrl);
     }
 
     /**